@@ -3,7 +3,11 @@ package com.bank.fraud.api;
 import com.bank.fraud.domain.ActionRequest;
 import com.bank.fraud.domain.CustomerRiskState;
 import com.bank.fraud.service.ActionRequestService;
+import com.bank.fraud.service.Keyset;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -12,9 +16,11 @@ import java.util.List;
 public class ActionRequestController {
 
     private final ActionRequestService svc;
+    private final ObjectMapper om;
 
-    public ActionRequestController(ActionRequestService svc) {
+    public ActionRequestController(ActionRequestService svc, ObjectMapper om) {
         this.svc = svc;
+        this.om = om;
     }
 
     /**
@@ -70,4 +76,31 @@ public class ActionRequestController {
     ) {
         return svc.list(status, customerNo);
     }
+
+    /**
+     * Same filters as the list, without its cap: newest first, pass nextCursor back for the following page.
+     * GET /v1/actions/page?status=EXECUTED&limit=200
+     */
+    @GetMapping("/page")
+    public Keyset.Page<ActionRequest> page(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String customerNo,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "200") int limit
+    ) {
+        Keyset.validate(cursor, limit);
+        return svc.page(status, customerNo, cursor, limit);
+    }
+
+    /**
+     * Every matching request, same order, as NDJSON:
+     * GET /v1/actions/stream?customerNo=CUST00042
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) String customerNo
+    ) {
+        return Ndjson.<ActionRequest>stream(om, row -> svc.forEach(status, customerNo, row));
+    }
 }
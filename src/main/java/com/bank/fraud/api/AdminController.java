@@ -1,17 +1,28 @@
 ﻿package com.bank.fraud.api;
 
 import com.bank.fraud.domain.ActionRequest;
+import com.bank.fraud.policy.PolicyEngine;
 import com.bank.fraud.service.ActionRequestService;
+import com.bank.fraud.service.AuditSegments;
+import com.bank.fraud.service.AuditService;
+import com.fasterxml.jackson.annotation.JsonRawValue;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.util.List;
+
 @RestController
 @RequestMapping("/v1/admin")
 public class AdminController {
 
     private final ActionRequestService actionReq;
+    private final PolicyEngine policyEngine;
+    private final AuditService audit;
 
-    public AdminController(ActionRequestService actionReq) {
+    public AdminController(ActionRequestService actionReq, PolicyEngine policyEngine, AuditService audit) {
         this.actionReq = actionReq;
+        this.policyEngine = policyEngine;
+        this.audit = audit;
     }
 
     /**
@@ -32,4 +43,52 @@ public class AdminController {
                                         @RequestParam(required = false) Long caseId) {
         return actionReq.request(customerNo, caseId, "UNBLOCK_CREDIT", maker, reason);
     }
+
+    @GetMapping("/policy")
+    public PolicyEngine.PolicyInfo policy() {
+        return policyEngine.info();
+    }
+
+    @GetMapping("/policy/candidate")
+    public PolicyEngine.PolicyInfo candidatePolicy() {
+        return policyEngine.candidateInfo();
+    }
+
+    /**
+     * Re-reads app.policyPath (and app.policy.candidatePath) on this instance (the file watcher does the same on change).
+     * Example:
+     * POST /v1/admin/policy/reload?actor=talha
+     * An invalid file comes back as status=REJECTED with the reason; the running policy is kept.
+     */
+    @PostMapping("/policy/reload")
+    public PolicyEngine.PolicyInfo reloadPolicy(@RequestParam(defaultValue = "admin") String actor) {
+        return policyEngine.reload(actor);
+    }
+
+    /**
+     * Recomputes the audit hash chain over all segment files of this instance.
+     * Example:
+     * GET /v1/admin/audit/verify
+     * status=BROKEN names the first segment / line whose hash or sequence does not follow.
+     */
+    @GetMapping("/audit/verify")
+    public AuditSegments.Verification verifyAudit() throws IOException {
+        return audit.verify();
+    }
+
+    /**
+     * Example:
+     * GET /v1/admin/audit?fromSeq=1&limit=100&action=BLOCK_CREDIT
+     */
+    @GetMapping("/audit")
+    public List<AuditLine> auditRecords(@RequestParam(defaultValue = "1") long fromSeq,
+                                        @RequestParam(defaultValue = "100") int limit,
+                                        @RequestParam(required = false) String action) throws IOException {
+        if (limit < 1 || limit > 1000) throw new IllegalArgumentException("limit must be 1..1000");
+        return audit.records(fromSeq, limit, action).stream()
+                .map(l -> new AuditLine(l.hash(), l.record()))
+                .toList();
+    }
+
+    public record AuditLine(String hash, @JsonRawValue String record) {}
 }
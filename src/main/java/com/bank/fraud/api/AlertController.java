@@ -0,0 +1,51 @@
+package com.bank.fraud.api;
+
+import com.bank.fraud.domain.FraudAlert;
+import com.bank.fraud.service.CaseService;
+import com.bank.fraud.service.Keyset;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@RestController
+@RequestMapping("/v1/alerts")
+public class AlertController {
+
+    private final CaseService caseService;
+    private final ObjectMapper om;
+
+    public AlertController(CaseService caseService, ObjectMapper om) {
+        this.caseService = caseService;
+        this.om = om;
+    }
+
+    /**
+     * Alerts newest first, of a case or of a customer; pass nextCursor back for the following page.
+     * Example:
+     * GET /v1/alerts/page?customerNo=CUST00042&limit=100
+     * GET /v1/alerts/page?caseId=1&cursor=MTcz...
+     */
+    @GetMapping("/page")
+    public Keyset.Page<FraudAlert> page(@RequestParam(required = false) Long caseId,
+                                        @RequestParam(required = false) String customerNo,
+                                        @RequestParam(required = false) String cursor,
+                                        @RequestParam(defaultValue = "100") int limit) {
+        CaseService.requireAlertFilter(caseId, customerNo);
+        Keyset.validate(cursor, limit);
+        return caseService.alertPage(caseId, customerNo, cursor, limit);
+    }
+
+    /**
+     * All of them, same order, as NDJSON. Parameters are checked here: once the body runs the 200
+     * is already sent.
+     * Example:
+     * GET /v1/alerts/stream?customerNo=CUST00042
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) Long caseId,
+                                                        @RequestParam(required = false) String customerNo) {
+        CaseService.requireAlertFilter(caseId, customerNo);
+        return Ndjson.<FraudAlert>stream(om, row -> caseService.forEachAlert(caseId, customerNo, row));
+    }
+}
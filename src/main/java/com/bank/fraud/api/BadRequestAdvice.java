@@ -0,0 +1,22 @@
+package com.bank.fraud.api;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Invalid request input (IllegalArgumentException from a controller or service: missing filter,
+ * bad cursor, limit out of range, ...) is a 400 with the message instead of a 500.
+ * <p>
+ * NDJSON endpoints check their parameters before returning the StreamingResponseBody; an error
+ * thrown while it runs comes after the 200 has been sent and only ends the stream.
+ */
+@RestControllerAdvice
+class BadRequestAdvice {
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ProblemDetail badRequest(IllegalArgumentException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+}
@@ -3,8 +3,12 @@
 import com.bank.fraud.domain.CaseEvent;
 import com.bank.fraud.domain.FraudCase;
 import com.bank.fraud.service.CaseService;
+import com.bank.fraud.service.Keyset;
 import com.bank.fraud.service.Repositories;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -14,10 +18,12 @@ public class CaseController {
 
     private final Repositories.FraudCaseRepo caseRepo;
     private final CaseService caseService;
+    private final ObjectMapper om;
 
-    public CaseController(Repositories.FraudCaseRepo caseRepo, CaseService caseService) {
+    public CaseController(Repositories.FraudCaseRepo caseRepo, CaseService caseService, ObjectMapper om) {
         this.caseRepo = caseRepo;
         this.caseService = caseService;
+        this.om = om;
     }
 
     @GetMapping
@@ -28,6 +34,32 @@ public class CaseController {
         return caseRepo.findTop50ByStatusOrderByOpenedAtDesc("OPEN");
     }
 
+    /**
+     * Like the list, without its cap: newest first, pass nextCursor back for the following page.
+     * Example:
+     * GET /v1/cases/page?status=OPEN&limit=50
+     * GET /v1/cases/page?status=OPEN&limit=50&cursor=MTcz...
+     */
+    @GetMapping("/page")
+    public Keyset.Page<FraudCase> page(@RequestParam(required = false) String status,
+                                       @RequestParam(required = false) String customerNo,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(defaultValue = "50") int limit) {
+        Keyset.validate(cursor, limit);
+        return caseService.casePage(status, customerNo, cursor, limit);
+    }
+
+    /**
+     * Every matching case, same order, as NDJSON.
+     * Example:
+     * GET /v1/cases/stream?status=CLOSED
+     */
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> stream(@RequestParam(required = false) String status,
+                                                        @RequestParam(required = false) String customerNo) {
+        return Ndjson.<FraudCase>stream(om, row -> caseService.forEachCase(status, customerNo, row));
+    }
+
     @PostMapping("/{caseId}/status")
     public FraudCase setStatus(@PathVariable Long caseId, @RequestParam String status, @RequestParam(defaultValue = "analyst") String actor) {
         return caseService.updateStatus(caseId, status, actor);
@@ -38,6 +70,28 @@ public class CaseController {
         return caseService.timeline(caseId);
     }
 
+    /**
+     * Timeline oldest first, without the 500-event cap of /timeline.
+     * Example:
+     * GET /v1/cases/1/timeline/page?limit=200&cursor=MTcz...
+     */
+    @GetMapping("/{caseId}/timeline/page")
+    public Keyset.Page<CaseEvent> timelinePage(@PathVariable Long caseId,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(defaultValue = "200") int limit) {
+        Keyset.validate(cursor, limit);
+        return caseService.timelinePage(caseId, cursor, limit);
+    }
+
+    /**
+     * Example:
+     * GET /v1/cases/1/timeline/stream
+     */
+    @GetMapping("/{caseId}/timeline/stream")
+    public ResponseEntity<StreamingResponseBody> timelineStream(@PathVariable Long caseId) {
+        return Ndjson.<CaseEvent>stream(om, row -> caseService.forEachTimelineEvent(caseId, row));
+    }
+
     @PostMapping("/{caseId}/notes")
     public CaseEvent addNote(@PathVariable Long caseId, @RequestParam String note, @RequestParam(defaultValue = "analyst") String actor) {
         return caseService.addNote(caseId, note, actor);
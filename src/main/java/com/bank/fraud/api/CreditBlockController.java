@@ -0,0 +1,46 @@
+package com.bank.fraud.api;
+
+import com.bank.fraud.service.CreditBlockRegistry;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only credit-block status for the payment gateway, served from memory (see CreditBlockRegistry).
+ */
+@RestController
+@RequestMapping("/v1/credit-blocks")
+public class CreditBlockController {
+
+    private static final int MAX_BULK = 1000;
+
+    private final CreditBlockRegistry registry;
+
+    public CreditBlockController(CreditBlockRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Example:
+     * GET /v1/credit-blocks/CUST00042
+     */
+    @GetMapping("/{customerNo}")
+    public CreditBlockRegistry.Status status(@PathVariable String customerNo) {
+        return registry.status(customerNo);
+    }
+
+    /**
+     * Example (up to 1000 customers, answers in request order):
+     * POST /v1/credit-blocks/lookup   ["CUST00042","CUST00043"]
+     */
+    @PostMapping("/lookup")
+    public List<CreditBlockRegistry.Status> lookup(@RequestBody List<String> customerNos) {
+        if (customerNos.size() > MAX_BULK) {
+            throw new IllegalArgumentException("At most " + MAX_BULK + " customers per lookup");
+        }
+        List<CreditBlockRegistry.Status> out = new ArrayList<>(customerNos.size());
+        for (String c : customerNos) out.add(registry.status(c));
+        return out;
+    }
+}
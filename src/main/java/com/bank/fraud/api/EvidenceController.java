@@ -0,0 +1,36 @@
+package com.bank.fraud.api;
+
+import com.bank.fraud.domain.TransactionEvidence;
+import com.bank.fraud.service.EvidenceStore;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/v1/evidence")
+public class EvidenceController {
+
+    private final EvidenceStore evidenceStore;
+
+    public EvidenceController(EvidenceStore evidenceStore) {
+        this.evidenceStore = evidenceStore;
+    }
+
+    /**
+     * Transaction evidence referenced by an alert (eventId) or a case / timeline event (evidenceEventId).
+     * Example:
+     * GET /v1/evidence/evt-000123
+     */
+    @GetMapping("/{eventId}")
+    public ResponseEntity<Evidence> get(@PathVariable String eventId) {
+        return ResponseEntity.of(evidenceStore.find(eventId).map(Evidence::of));
+    }
+
+    public record Evidence(String eventId, String sha256, Instant createdAt, @JsonRawValue String evidence) {
+        static Evidence of(TransactionEvidence e) {
+            return new Evidence(e.getEventId(), e.getSha256(), e.getCreatedAt(), e.getEvidenceJson());
+        }
+    }
+}
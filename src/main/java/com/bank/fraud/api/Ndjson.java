@@ -0,0 +1,45 @@
+package com.bank.fraud.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * application/x-ndjson response written while the rows are read: one JSON object per line, serialized
+ * like the JSON endpoints. Rows are not collected and the generator writes through in buffer-sized
+ * chunks, so memory does not grow with the row count.
+ */
+final class Ndjson {
+
+    static final MediaType MEDIA_TYPE = MediaType.parseMediaType("application/x-ndjson");
+
+    private Ndjson() {}
+
+    /**
+     * @param rows called on the response thread with the per-row writer
+     */
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper om, Consumer<Consumer<T>> rows) {
+        ObjectWriter writer = om.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return ResponseEntity.ok().contentType(MEDIA_TYPE).body(out -> {
+            try (JsonGenerator g = om.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                g.setRootValueSeparator(null); // lines end with '\n' instead of being separated by ' '
+                rows.accept(row -> {
+                    try {
+                        writer.writeValue(g, row);
+                        g.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        });
+    }
+}
@@ -1,20 +1,29 @@
 package com.bank.fraud.api;
 
+import com.bank.fraud.domain.SarJob;
 import com.bank.fraud.domain.SarReport;
+import com.bank.fraud.service.SarJobService;
 import com.bank.fraud.service.SarReportService;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping("/v1/reports")
 public class ReportController {
 
     private final SarReportService svc;
+    private final SarJobService jobs;
 
-    public ReportController(SarReportService svc) {
+    public ReportController(SarReportService svc, SarJobService jobs) {
         this.svc = svc;
+        this.jobs = jobs;
     }
 
     /**
@@ -29,6 +38,39 @@ public class ReportController {
         return svc.generate(caseId, type, actor, narrative);
     }
 
+    /**
+     * Queue report generation for every case matching all given filters; returns the batchId at once:
+     * POST /v1/reports/bulk?status=CLOSED&openedFrom=2026-09-01T00:00:00Z&openedTo=2026-10-01T00:00:00Z&type=SAR&actor=talha
+     */
+    @PostMapping("/bulk")
+    public SarJobService.Batch bulk(@RequestParam(required = false) String status,
+                                    @RequestParam(required = false) String customerNo,
+                                    @RequestParam(required = false) Instant openedFrom,
+                                    @RequestParam(required = false) Instant openedTo,
+                                    @RequestParam(defaultValue = "SAR") String type,
+                                    @RequestParam(defaultValue = "analyst") String actor,
+                                    @RequestParam(defaultValue = "") String narrative) {
+        return jobs.enqueue(new SarJobService.CaseFilter(status, customerNo, openedFrom, openedTo), type, actor, narrative);
+    }
+
+    /**
+     * Progress of a bulk request (job counts per status):
+     * GET /v1/reports/bulk/{batchId}
+     */
+    @GetMapping("/bulk/{batchId}")
+    public ResponseEntity<SarJobService.Progress> bulkProgress(@PathVariable String batchId) {
+        return ResponseEntity.of(jobs.progress(batchId));
+    }
+
+    /**
+     * Every job of a bulk request with its status, attempts, reportId or error:
+     * GET /v1/reports/bulk/{batchId}/jobs
+     */
+    @GetMapping("/bulk/{batchId}/jobs")
+    public List<SarJob> bulkJobs(@PathVariable String batchId) {
+        return jobs.jobs(batchId);
+    }
+
     /**
      * List reports for a case:
      * GET /v1/reports?caseId=1
@@ -39,11 +81,46 @@ public class ReportController {
     }
 
     /**
-     * Fetch report JSON:
+     * Fetch report JSON, streamed from storage:
      * GET /v1/reports/10/json
+     * When Accept-Encoding allows gzip the stored compressed bytes are sent as they are (Content-Encoding: gzip).
+     */
+    @GetMapping("/{id}/json")
+    public ResponseEntity<StreamingResponseBody> json(@PathVariable Long id,
+                                                      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, defaultValue = "") String acceptEncoding) {
+        SarReport report = svc.get(id);
+        boolean gzip = svc.storedAsGzip(report) && acceptsGzip(acceptEncoding);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        return response.body(out -> svc.writeJson(report, gzip, out));
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip (RFC 9110 12.5.3): the q-value of gzip, or of "*"
+     * when gzip is not listed, must be above 0. An empty header allows only identity.
      */
-    @GetMapping(value="/{id}/json", produces = MediaType.APPLICATION_JSON_VALUE)
-    public String json(@PathVariable Long id) {
-        return svc.get(id).getReportJson();
+    static boolean acceptsGzip(String acceptEncoding) {
+        double gzip = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0; // malformed weight: do not guess
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) gzip = Math.max(gzip, q);
+            else if (coding.equals("*")) any = Math.max(any, q);
+        }
+        return (gzip >= 0 ? gzip : any) > 0;
     }
 }
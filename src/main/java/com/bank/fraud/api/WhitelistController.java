@@ -1,9 +1,14 @@
 package com.bank.fraud.api;
 
 import com.bank.fraud.domain.WhitelistEntry;
+import com.bank.fraud.service.WhitelistBulkService;
 import com.bank.fraud.service.WhitelistService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.time.Instant;
 import java.util.List;
 
@@ -12,9 +17,11 @@ import java.util.List;
 public class WhitelistController {
 
     private final WhitelistService wl;
+    private final WhitelistBulkService bulk;
 
-    public WhitelistController(WhitelistService wl) {
+    public WhitelistController(WhitelistService wl, WhitelistBulkService bulk) {
         this.wl = wl;
+        this.bulk = bulk;
     }
 
     @GetMapping
@@ -45,4 +52,36 @@ public class WhitelistController {
     public void delete(@PathVariable Long id, @RequestParam(defaultValue = "admin") String actor) {
         wl.delete(id, actor);
     }
+
+    /**
+     * Example:
+     * curl --data-binary @whitelist.csv -H 'Content-Type: text/csv' 'http://localhost:9200/v1/admin/whitelist/bulk?format=csv&actor=talha'
+     * CSV needs a header: type,value,hardBypass,reason,createdBy,ticketRef,expiresAt (only type,value,reason required).
+     * format=ndjson: one JSON object per line with the same names.
+     * strict=true rolls everything back on the first invalid row; otherwise invalid rows are skipped and reported.
+     */
+    @PostMapping("/bulk")
+    public WhitelistBulkService.Result bulkImport(InputStream body,
+                                                 @RequestParam(defaultValue = "csv") String format,
+                                                 @RequestParam(defaultValue = "admin") String actor,
+                                                 @RequestParam(defaultValue = "false") boolean strict) {
+        return bulk.importEntries(body, format, actor, strict);
+    }
+
+    /**
+     * Example:
+     * GET /v1/admin/whitelist/export?format=csv   (or ndjson); re-importable through /bulk
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "csv") String format) {
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                    .body(bulk::exportNdjson);
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .header("Content-Disposition", "attachment; filename=whitelist.csv")
+                .body(bulk::exportCsv);
+    }
 }
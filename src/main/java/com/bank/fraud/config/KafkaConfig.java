@@ -0,0 +1,63 @@
+package com.bank.fraud.config;
+
+import com.bank.fraud.kafka.KafkaTopics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+
+@Configuration
+public class KafkaConfig {
+
+    public static final String BATCH_FACTORY = "batchListenerContainerFactory";
+    public static final String PARALLEL_FACTORY = "parallelListenerContainerFactory";
+
+    /**
+     * Same settings as the default factory (manual ack etc.), but hands the whole poll to the listener.
+     */
+    @Bean(BATCH_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> batchListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory
+    ) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> f = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(f, consumerFactory);
+        f.setBatchListener(true);
+        return f;
+    }
+
+    /**
+     * Record listener whose manual acks may arrive out of order and from other threads.
+     * The container only commits an offset once every earlier offset of the partition is acked,
+     * and does not poll again until the previous poll is fully acked.
+     */
+    @Bean(PARALLEL_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> parallelListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory
+    ) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> f = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(f, consumerFactory);
+        f.getContainerProperties().setAsyncAcks(true);
+        return f;
+    }
+
+    /**
+     * Outbox topics (see OutboxRelay), created by KafkaAdmin if missing.
+     */
+    @Bean
+    public NewTopic fraudActionsTopic(@Value("${app.outbox.topicPartitions}") int partitions,
+                                      @Value("${app.outbox.topicReplicas}") short replicas) {
+        return TopicBuilder.name(KafkaTopics.FRAUD_ACTIONS).partitions(partitions).replicas(replicas).build();
+    }
+
+    @Bean
+    public NewTopic fraudAlertsTopic(@Value("${app.outbox.topicPartitions}") int partitions,
+                                     @Value("${app.outbox.topicReplicas}") short replicas) {
+        return TopicBuilder.name(KafkaTopics.FRAUD_ALERTS).partitions(partitions).replicas(replicas).build();
+    }
+}
@@ -7,7 +7,10 @@ import java.time.Instant;
 @Table(name="action_requests", indexes = {
         @Index(name="ix_ar_customer", columnList="customerNo"),
         @Index(name="ix_ar_status", columnList="status"),
-        @Index(name="ix_ar_case", columnList="caseId")
+        @Index(name="ix_ar_case", columnList="caseId"),
+        // keyset pages / streams, newest first
+        @Index(name="ix_ar_customer_requested", columnList="customerNo, requestedAt, id"),
+        @Index(name="ix_ar_status_requested", columnList="status, requestedAt, id")
 })
 public class ActionRequest {
 
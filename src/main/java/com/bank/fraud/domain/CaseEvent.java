@@ -6,11 +6,14 @@ import java.time.Instant;
 @Entity
 @Table(name="case_events", indexes = {
         @Index(name="ix_case_events_case", columnList="caseId"),
-        @Index(name="ix_case_events_time", columnList="createdAt")
+        @Index(name="ix_case_events_time", columnList="createdAt"),
+        @Index(name="ix_case_events_case_created", columnList="caseId, createdAt, id") // keyset timeline
 })
 public class CaseEvent {
 
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY: ids without a round trip, so inserts can be JDBC-batched
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "case_events_seq")
+    @SequenceGenerator(name = "case_events_seq", sequenceName = "case_events_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable=false)
@@ -40,6 +43,12 @@ public class CaseEvent {
     @Column(columnDefinition="text")
     private String payloadJson;
 
+    /**
+     * transaction_evidence of the event behind this entry (ALERT / CASE_OPENED), null otherwise
+     */
+    @Column
+    private String evidenceEventId;
+
     public CaseEvent() {}
 
     public CaseEvent(Long caseId, String eventType, String eventCode, String actor, String payloadJson) {
@@ -50,6 +59,11 @@ public class CaseEvent {
         this.payloadJson = payloadJson;
     }
 
+    public CaseEvent(Long caseId, String eventType, String eventCode, String actor, String payloadJson, String evidenceEventId) {
+        this(caseId, eventType, eventCode, actor, payloadJson);
+        this.evidenceEventId = evidenceEventId;
+    }
+
     public Long getId() { return id; }
     public Long getCaseId() { return caseId; }
     public String getEventType() { return eventType; }
@@ -57,4 +71,5 @@ public class CaseEvent {
     public String getActor() { return actor; }
     public Instant getCreatedAt() { return createdAt; }
     public String getPayloadJson() { return payloadJson; }
+    public String getEvidenceEventId() { return evidenceEventId; }
 }
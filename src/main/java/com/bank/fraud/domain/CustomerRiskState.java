@@ -16,6 +16,12 @@ public class CustomerRiskState {
     @Column(nullable=false) private String blockReason = "";
     @Column(nullable=false) private Instant updatedAt = Instant.now();
 
+    /**
+     * Bumped by every block / unblock transition, under the row lock; carried in the fraud.actions
+     * message so consumers can drop a transition older than one they have already applied
+     */
+    @Column(columnDefinition="bigint default 0") private long version = 0;
+
     public CustomerRiskState() {}
 
     public CustomerRiskState(String customerNo) {
@@ -26,6 +32,7 @@ public class CustomerRiskState {
     public boolean isCreditBlocked() { return creditBlocked; }
     public String getBlockReason() { return blockReason; }
     public Instant getUpdatedAt() { return updatedAt; }
+    public long getVersion() { return version; }
 
     public void blockCredit(String reason) {
         this.creditBlocked = true;
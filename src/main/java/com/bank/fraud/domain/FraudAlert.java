@@ -4,9 +4,15 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name="fraud_alerts")
+@Table(name="fraud_alerts", indexes = {
+        // keyset pages / streams, newest first
+        @Index(name="ix_alert_customer_created", columnList="customerNo, createdAt, id"),
+        @Index(name="ix_alert_case_created", columnList="caseId, createdAt, id")
+})
 public class FraudAlert {
-    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // pooled sequence instead of IDENTITY: ids without a round trip, so inserts can be JDBC-batched
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "fraud_alerts_seq")
+    @SequenceGenerator(name = "fraud_alerts_seq", sequenceName = "fraud_alerts_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable=false) private String eventId;
@@ -17,13 +23,15 @@ public class FraudAlert {
 
     @Column(nullable=false) private Instant createdAt = Instant.now();
 
+    // what tripped (rule / velocity window); the transaction itself is transaction_evidence[eventId]
     @Column(columnDefinition="text") private String detailsJson;
 
     @Column private Long caseId; // nullable: not always mapped to a case
 
-    @Column private Long caseId; // nullable: not always mapped to a case
-
-
+    // > 1 when later hits of the same rule were folded into this alert (AlertAggregator)
+    @Column(columnDefinition="integer default 1") private int hitCount = 1;
+    @Column private Instant lastSeenAt;
+    @Column private String lastEventId;
 
     public FraudAlert() {}
 
@@ -45,6 +53,15 @@ public class FraudAlert {
     public String getRuleId() { return ruleId; }
     public Instant getCreatedAt() { return createdAt; }
     public String getDetailsJson() { return detailsJson; }
+    public int getHitCount() { return hitCount; }
+    public Instant getLastSeenAt() { return lastSeenAt; }
+    public String getLastEventId() { return lastEventId; }
     public void setCaseId(Long caseId) { this.caseId = caseId; }
 
+    public void aggregate(int hitCount, Instant lastSeenAt, String lastEventId) {
+        this.hitCount = hitCount;
+        this.lastSeenAt = lastSeenAt;
+        this.lastEventId = lastEventId;
+    }
+
 }
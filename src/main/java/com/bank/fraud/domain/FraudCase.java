@@ -6,7 +6,10 @@ import java.time.Instant;
 @Entity
 @Table(name="fraud_cases", indexes = {
         @Index(name="ix_case_customer", columnList="customerNo"),
-        @Index(name="ix_case_status", columnList="status")
+        @Index(name="ix_case_status", columnList="status"),
+        // keyset pages / streams, newest first
+        @Index(name="ix_case_customer_opened", columnList="customerNo, openedAt, id"),
+        @Index(name="ix_case_status_opened", columnList="status, openedAt, id")
 })
 public class FraudCase {
     @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -18,7 +21,8 @@ public class FraudCase {
     @Column(nullable=false) private Instant openedAt = Instant.now();
 
     @Column(columnDefinition="text") private String summary;
-    @Column(columnDefinition="text") private String evidenceJson;
+    @Column(columnDefinition="text") private String evidenceJson; // cases opened before transaction_evidence
+    @Column private String evidenceEventId; // transaction_evidence of the event that opened the case
 
     public FraudCase() {}
 
@@ -37,6 +41,7 @@ public class FraudCase {
     public Instant getOpenedAt() { return openedAt; }
     public String getSummary() { return summary; }
     public String getEvidenceJson() { return evidenceJson; }
+    public String getEvidenceEventId() { return evidenceEventId; }
 
     public void setStatus(String status) { this.status = status; }
     public void setSummary(String summary) { this.summary = summary; }
@@ -0,0 +1,57 @@
+package com.bank.fraud.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A message for Kafka, written in the same transaction as the change it announces and deleted by
+ * the relay once the broker has acknowledged it.
+ */
+@Entity
+@Table(name="outbox_events")
+public class OutboxEvent {
+
+    // not pooled: the id is drawn on save, so for a credit-block row it is taken while the transaction
+    // holds the customer_risk_state row lock and id order is the customer's commit order. A pooled
+    // block (handed out per JVM) would not be. The relay publishes in id order.
+    @Id @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 1)
+    private Long id;
+
+    @Column(nullable=false, length=64)
+    private String topic;
+
+    /**
+     * Kafka record key (customerNo): one partition, hence one order, per customer
+     */
+    @Column(nullable=false, length=64)
+    private String messageKey;
+
+    /**
+     * ALERT_RAISED | CREDIT_BLOCKED | CREDIT_UNBLOCKED
+     */
+    @Column(nullable=false, length=32)
+    private String eventType;
+
+    @Column(nullable=false, columnDefinition="text")
+    private String payloadJson;
+
+    @Column(nullable=false)
+    private Instant createdAt = Instant.now();
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(String topic, String messageKey, String eventType, String payloadJson) {
+        this.topic = topic;
+        this.messageKey = messageKey;
+        this.eventType = eventType;
+        this.payloadJson = payloadJson;
+    }
+
+    public Long getId() { return id; }
+    public String getTopic() { return topic; }
+    public String getMessageKey() { return messageKey; }
+    public String getEventType() { return eventType; }
+    public String getPayloadJson() { return payloadJson; }
+    public Instant getCreatedAt() { return createdAt; }
+}
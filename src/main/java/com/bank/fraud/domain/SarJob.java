@@ -0,0 +1,73 @@
+package com.bank.fraud.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One report to generate as part of a bulk request (batchId). Rows are created by
+ * INSERT ... SELECT over the case filter and claimed by SarJobWorker with FOR UPDATE SKIP LOCKED.
+ */
+@Entity
+@Table(name="sar_jobs", indexes = {
+        @Index(name="ix_sar_jobs_batch", columnList="batchId, id"),
+        @Index(name="ix_sar_jobs_status", columnList="status, id")
+})
+public class SarJob {
+
+    @Id @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable=false, length=36)
+    private String batchId;
+
+    @Column(nullable=false)
+    private Long caseId;
+
+    @Column(nullable=false, length=32)
+    private String reportType;
+
+    @Column(nullable=false, length=64)
+    private String actor;
+
+    @Column(columnDefinition="text")
+    private String narrative;
+
+    @Column(nullable=false, length=16)
+    private String status; // QUEUED, RUNNING, DONE, FAILED
+
+    @Column(nullable=false)
+    private int attempts;
+
+    @Column(length=128)
+    private String lockedBy;  // instance running it
+
+    private Long reportId;    // set when DONE
+
+    @Column(columnDefinition="text")
+    private String error;     // last failure
+
+    @Column(nullable=false)
+    private Instant createdAt = Instant.now();
+
+    private Instant startedAt;
+    private Instant heartbeatAt;
+    private Instant finishedAt;
+
+    public SarJob() {}
+
+    public Long getId() { return id; }
+    public String getBatchId() { return batchId; }
+    public Long getCaseId() { return caseId; }
+    public String getReportType() { return reportType; }
+    public String getActor() { return actor; }
+    public String getNarrative() { return narrative; }
+    public String getStatus() { return status; }
+    public int getAttempts() { return attempts; }
+    public String getLockedBy() { return lockedBy; }
+    public Long getReportId() { return reportId; }
+    public String getError() { return error; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getHeartbeatAt() { return heartbeatAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+}
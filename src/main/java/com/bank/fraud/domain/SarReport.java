@@ -28,9 +28,20 @@ public class SarReport {
     @Column(nullable=false)
     private Instant createdAt = Instant.now();
 
-    @Column(columnDefinition="text", nullable=false)
+    // reports generated before sar_report_content; newer ones keep their JSON there
+    @Column(columnDefinition="text")
     private String reportJson;
 
+    @Column private Long alertsCount;
+    @Column private Long timelineEventsCount;
+
+    /**
+     * hex SHA-256 and size of the (uncompressed) report JSON in sar_report_content
+     */
+    @Column(length=64) private String sha256;
+    @Column private Long jsonBytes;
+    @Column private Long storedBytes; // compressed
+
     public SarReport() {}
 
     public SarReport(Long caseId, String reportType, int version, String createdBy, String reportJson) {
@@ -41,6 +52,16 @@ public class SarReport {
         this.reportJson = reportJson;
     }
 
+    public SarReport(Long caseId, String reportType, int version, String createdBy,
+                     long alertsCount, long timelineEventsCount, String sha256, long jsonBytes, long storedBytes) {
+        this(caseId, reportType, version, createdBy, null);
+        this.alertsCount = alertsCount;
+        this.timelineEventsCount = timelineEventsCount;
+        this.sha256 = sha256;
+        this.jsonBytes = jsonBytes;
+        this.storedBytes = storedBytes;
+    }
+
     public Long getId() { return id; }
     public Long getCaseId() { return caseId; }
     public String getReportType() { return reportType; }
@@ -48,4 +69,9 @@ public class SarReport {
     public String getCreatedBy() { return createdBy; }
     public Instant getCreatedAt() { return createdAt; }
     public String getReportJson() { return reportJson; }
+    public Long getAlertsCount() { return alertsCount; }
+    public Long getTimelineEventsCount() { return timelineEventsCount; }
+    public String getSha256() { return sha256; }
+    public Long getJsonBytes() { return jsonBytes; }
+    public Long getStoredBytes() { return storedBytes; }
 }
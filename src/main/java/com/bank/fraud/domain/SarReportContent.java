@@ -0,0 +1,26 @@
+package com.bank.fraud.domain;
+
+import jakarta.persistence.*;
+
+/**
+ * Body of a {@link SarReport}: the report JSON, gzip-compressed. Kept apart from sar_reports so
+ * listing reports never reads it; written and read as a stream by SarReportService.
+ */
+@Entity
+@Table(name="sar_report_content")
+public class SarReportContent {
+
+    @Id
+    private Long reportId;
+
+    @Column(nullable=false, length=16)
+    private String encoding; // gzip
+
+    @Column(nullable=false, columnDefinition="bytea")
+    private byte[] content;
+
+    public SarReportContent() {}
+
+    public Long getReportId() { return reportId; }
+    public String getEncoding() { return encoding; }
+}
@@ -1 +1,16 @@
-﻿// paste from chat
+﻿package com.bank.fraud.domain;
+
+/**
+ * Payload of transactions.created (JSON or the binary format of TransactionEventCodec).
+ */
+public record TransactionEvent(
+        String eventId,
+        String customerNo,
+        String fromIban,
+        String toIban,
+        long amountCents,
+        String currency,   // TRY, USD, EUR, ...
+        String channel,    // MOBILE, INTERNET, ATM, BRANCH, ...
+        String mcc,        // 4-digit merchant category code, nullable
+        String description
+) {}
@@ -0,0 +1,37 @@
+package com.bank.fraud.domain;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * The transaction an alert / case is about, plus the whitelist decision at that time, stored once
+ * per event. Alerts reference it through their eventId, cases and timeline events through
+ * evidenceEventId. Write-once.
+ */
+@Entity
+@Table(name="transaction_evidence")
+public class TransactionEvidence {
+
+    @Id
+    @Column(nullable=false)
+    private String eventId;
+
+    /**
+     * hex SHA-256 of evidenceJson
+     */
+    @Column(nullable=false, length=64)
+    private String sha256;
+
+    @Column(nullable=false, columnDefinition="text")
+    private String evidenceJson;
+
+    @Column(nullable=false)
+    private Instant createdAt = Instant.now();
+
+    public TransactionEvidence() {}
+
+    public String getEventId() { return eventId; }
+    public String getSha256() { return sha256; }
+    public String getEvidenceJson() { return evidenceJson; }
+    public Instant getCreatedAt() { return createdAt; }
+}
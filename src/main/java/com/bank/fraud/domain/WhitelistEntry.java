@@ -15,7 +15,7 @@ public class WhitelistEntry {
     private Long id;
 
     /**
-     * CUSTOMER | IBAN | RULE_ID | MCC
+     * CUSTOMER | CUSTOMER_PATTERN | IBAN | IBAN_PREFIX | RULE_ID | MCC | MCC_RANGE
      */
     @Column(nullable=false, length=32)
     private String type;
@@ -25,6 +25,9 @@ public class WhitelistEntry {
      * IBAN: iban value (exact)
      * RULE_ID: rule id (e.g., betting_mcc_7995)
      * MCC: mcc code (e.g., 7995)
+     * CUSTOMER_PATTERN: glob over customerNo, * and ? (e.g., CORP*)
+     * IBAN_PREFIX: iban prefix, e.g. country + check digits + bank code (e.g., TR330006100)
+     * MCC_RANGE: inclusive code range (e.g., 5000-5999)
      */
     @Column(nullable=false, length=128)
     private String value;
@@ -2,4 +2,8 @@
 
 public class KafkaTopics {
     public static final String TRANSACTIONS_CREATED = "transactions.created";
+
+    // published from the outbox, keyed by customerNo
+    public static final String FRAUD_ACTIONS = "fraud.actions";
+    public static final String FRAUD_ALERTS = "fraud.alerts";
 }
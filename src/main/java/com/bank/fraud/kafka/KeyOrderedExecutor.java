@@ -0,0 +1,35 @@
+package com.bank.fraud.kafka;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs tasks on virtual threads, serially per key and concurrently across keys.
+ * A task runs only after the previous task of the same key finished (successfully or not).
+ */
+public class KeyOrderedExecutor implements AutoCloseable {
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<String, CompletableFuture<Void>> tails = new ConcurrentHashMap<>();
+
+    public CompletableFuture<Void> submit(String key, Runnable task) {
+        CompletableFuture<Void> next = tails.compute(key, (k, tail) -> tail == null
+                ? CompletableFuture.runAsync(task, workers)
+                : tail.handle((r, e) -> null).thenRunAsync(task, workers));
+
+        // drop the chain once it is idle so the map only holds keys with work in flight
+        next.whenComplete((r, e) -> tails.remove(key, next));
+        return next;
+    }
+
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    @Override
+    public void close() {
+        workers.close();
+    }
+}
@@ -0,0 +1,57 @@
+package com.bank.fraud.kafka;
+
+import com.bank.fraud.config.KafkaConfig;
+import com.bank.fraud.domain.TransactionEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batch listener (app.consumer.mode=batch): one poll is decoded, evaluated and written as a unit,
+ * then acknowledged once. A failure anywhere fails the whole batch, which is redelivered.
+ */
+@Component
+@ConditionalOnProperty(name = "app.consumer.mode", havingValue = "batch")
+public class TransactionBatchConsumer implements ConsumerSeekAware {
+
+    private final TransactionEventCodec codec;
+    private final TransactionPipeline pipeline;
+
+    public TransactionBatchConsumer(TransactionEventCodec codec, TransactionPipeline pipeline) {
+        this.codec = codec;
+        this.pipeline = pipeline;
+    }
+
+    @KafkaListener(
+            topics = KafkaTopics.TRANSACTIONS_CREATED,
+            containerFactory = KafkaConfig.BATCH_FACTORY,
+            properties = {
+                    "max.poll.records=${app.consumer.batchSize}",
+                    "fetch.max.wait.ms=${app.consumer.maxLatencyMs}",
+                    "fetch.min.bytes=${app.consumer.fetchMinBytes}"
+            }
+    )
+    public void onBatch(List<ConsumerRecord<String, byte[]>> recs, Acknowledgment ack) throws Exception {
+        List<String> scopes = new ArrayList<>(recs.size());
+        List<TransactionEvent> events = new ArrayList<>(recs.size());
+        for (ConsumerRecord<String, byte[]> rec : recs) {
+            scopes.add(TransactionPipeline.scope(rec.topic(), rec.partition()));
+            events.add(codec.decode(rec.value(), rec.headers()));
+        }
+        pipeline.processBatch(scopes, events);
+        ack.acknowledge();
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        pipeline.onPartitionsAssigned(assignments.keySet());
+    }
+}
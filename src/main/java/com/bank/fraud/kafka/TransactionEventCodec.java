@@ -0,0 +1,217 @@
+package com.bank.fraud.kafka;
+
+import com.bank.fraud.domain.TransactionEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Wire formats of transactions.created, selected by the "tx-format" record header:
+ * <ul>
+ *   <li>missing / "json" → JSON, parsed straight from the record bytes</li>
+ *   <li>"bin1" → compact binary v1 (below)</li>
+ *   <li>anything else → rejected (IllegalArgumentException), never guessed</li>
+ * </ul>
+ * Binary v1, big-endian:
+ * <pre>
+ * u8    version (=1)
+ * str8  eventId, customerNo, fromIban, toIban   (u8 length, 0xFF = null, UTF-8)
+ * i64   amountCents
+ * u8    currency  (dictionary code, 0 = inline str8 follows)
+ * u8    channel   (dictionary code, 0 = inline str8 follows)
+ * u16   mcc       (0..9999 for 4-digit codes, 0xFFFF = null, 0xFFFE = inline str8 follows)
+ * str16 description (u16 length, 0xFFFF = null, UTF-8)
+ * </pre>
+ * Dictionaries are part of the version: append-only, never reorder. Truncated input is rejected with
+ * an IllegalArgumentException.
+ */
+@Component
+public class TransactionEventCodec {
+
+    public static final String HEADER_FORMAT = "tx-format";
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_BIN1 = "bin1";
+
+    private static final byte[] BIN1 = FORMAT_BIN1.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] JSON = FORMAT_JSON.getBytes(StandardCharsets.US_ASCII);
+    private static final byte VERSION_1 = 1;
+
+    private static final int NULL8 = 0xFF;
+    private static final int NULL16 = 0xFFFF;
+    private static final int MCC_INLINE = 0xFFFE;
+
+    // code = index + 1 (0 = inline)
+    private static final String[] CURRENCIES = {"TRY", "USD", "EUR", "GBP", "CHF", "JPY", "SAR", "AED", "RUB", "CNY"};
+    private static final String[] CHANNELS = {"MOBILE", "INTERNET", "ATM", "BRANCH", "POS", "API", "CALL_CENTER"};
+
+    // decoded MCC strings are shared; the race on a slot is benign (same immutable value)
+    private static final String[] MCC_CACHE = new String[10_000];
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    public TransactionEvent decode(byte[] value, Headers headers) throws IOException {
+        Header h = headers == null ? null : headers.lastHeader(HEADER_FORMAT);
+        if (h == null || Arrays.equals(h.value(), JSON)) return om.readValue(value, TransactionEvent.class);
+        if (Arrays.equals(h.value(), BIN1)) return decodeBinary(value);
+        throw new IllegalArgumentException("Unsupported " + HEADER_FORMAT + ": "
+                + (h.value() == null ? null : new String(h.value(), StandardCharsets.UTF_8)));
+    }
+
+    public TransactionEvent decodeBinary(byte[] value) {
+        try {
+            return readBinary(ByteBuffer.wrap(value));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated transaction event (" + value.length + " bytes)", e);
+        }
+    }
+
+    private TransactionEvent readBinary(ByteBuffer b) {
+        byte version = b.get();
+        if (version != VERSION_1) throw new IllegalArgumentException("Unsupported transaction event version: " + version);
+
+        String eventId = str8(b);
+        String customerNo = str8(b);
+        String fromIban = str8(b);
+        String toIban = str8(b);
+        long amountCents = b.getLong();
+        String currency = dict(b, CURRENCIES);
+        String channel = dict(b, CHANNELS);
+        String mcc = mcc(b);
+        String description = str16(b);
+
+        return new TransactionEvent(eventId, customerNo, fromIban, toIban, amountCents, currency, channel, mcc, description);
+    }
+
+    /**
+     * For producers migrating to bin1: send with header tx-format=bin1 (see {@link TransactionEventSerializer}).
+     */
+    public byte[] encodeBinary(TransactionEvent ev) {
+        byte[] eventId = utf8(ev.eventId());
+        byte[] customerNo = utf8(ev.customerNo());
+        byte[] fromIban = utf8(ev.fromIban());
+        byte[] toIban = utf8(ev.toIban());
+        int currencyCode = code(CURRENCIES, ev.currency());
+        int channelCode = code(CHANNELS, ev.channel());
+        int mccCode = mccCode(ev.mcc());
+        byte[] currency = currencyCode == 0 ? utf8(ev.currency()) : null;
+        byte[] channel = channelCode == 0 ? utf8(ev.channel()) : null;
+        byte[] mcc = mccCode == MCC_INLINE ? utf8(ev.mcc()) : null;
+        byte[] description = utf8(ev.description());
+
+        int size = 1
+                + len8(eventId) + len8(customerNo) + len8(fromIban) + len8(toIban)
+                + 8
+                + 1 + (currencyCode == 0 ? len8(currency) : 0)
+                + 1 + (channelCode == 0 ? len8(channel) : 0)
+                + 2 + (mccCode == MCC_INLINE ? len8(mcc) : 0)
+                + 2 + (description == null ? 0 : description.length);
+
+        ByteBuffer b = ByteBuffer.allocate(size);
+        b.put(VERSION_1);
+        put8(b, eventId);
+        put8(b, customerNo);
+        put8(b, fromIban);
+        put8(b, toIban);
+        b.putLong(ev.amountCents());
+        b.put((byte) currencyCode);
+        if (currencyCode == 0) put8(b, currency);
+        b.put((byte) channelCode);
+        if (channelCode == 0) put8(b, channel);
+        b.putShort((short) mccCode);
+        if (mccCode == MCC_INLINE) put8(b, mcc);
+        put16(b, description);
+        return b.array();
+    }
+
+    // --- decode helpers (read straight from the record buffer) ---
+
+    private static String str8(ByteBuffer b) {
+        int len = b.get() & 0xFF;
+        if (len == NULL8) return null;
+        return slice(b, len);
+    }
+
+    private static String str16(ByteBuffer b) {
+        int len = b.getShort() & 0xFFFF;
+        if (len == NULL16) return null;
+        return slice(b, len);
+    }
+
+    private static String slice(ByteBuffer b, int len) {
+        if (len > b.remaining()) throw new BufferUnderflowException();
+        String s = new String(b.array(), b.arrayOffset() + b.position(), len, StandardCharsets.UTF_8);
+        b.position(b.position() + len);
+        return s;
+    }
+
+    private static String dict(ByteBuffer b, String[] dictionary) {
+        int code = b.get() & 0xFF;
+        if (code == 0) return str8(b);
+        if (code > dictionary.length) throw new IllegalArgumentException("Unknown dictionary code: " + code);
+        return dictionary[code - 1];
+    }
+
+    private static String mcc(ByteBuffer b) {
+        int code = b.getShort() & 0xFFFF;
+        if (code == NULL16) return null;
+        if (code == MCC_INLINE) return str8(b);
+        if (code >= MCC_CACHE.length) throw new IllegalArgumentException("Invalid mcc code: " + code);
+        String s = MCC_CACHE[code];
+        if (s == null) {
+            s = String.format("%04d", code);
+            MCC_CACHE[code] = s;
+        }
+        return s;
+    }
+
+    // --- encode helpers ---
+
+    private static byte[] utf8(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int len8(byte[] v) {
+        return 1 + (v == null ? 0 : v.length);
+    }
+
+    private static void put8(ByteBuffer b, byte[] v) {
+        if (v == null) { b.put((byte) NULL8); return; }
+        if (v.length >= NULL8) throw new IllegalArgumentException("Field too long for str8: " + v.length);
+        b.put((byte) v.length);
+        b.put(v);
+    }
+
+    private static void put16(ByteBuffer b, byte[] v) {
+        if (v == null) { b.putShort((short) NULL16); return; }
+        if (v.length >= NULL16) throw new IllegalArgumentException("Field too long for str16: " + v.length);
+        b.putShort((short) v.length);
+        b.put(v);
+    }
+
+    private static int code(String[] dictionary, String value) {
+        if (value == null) return 0;
+        for (int i = 0; i < dictionary.length; i++) {
+            if (dictionary[i].equals(value)) return i + 1;
+        }
+        return 0;
+    }
+
+    private static int mccCode(String mcc) {
+        if (mcc == null) return NULL16;
+        if (mcc.length() != 4) return MCC_INLINE;
+        int v = 0;
+        for (int i = 0; i < 4; i++) {
+            char c = mcc.charAt(i);
+            if (c < '0' || c > '9') return MCC_INLINE;
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+}
@@ -0,0 +1,30 @@
+package com.bank.fraud.kafka;
+
+import com.bank.fraud.domain.TransactionEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Producer-side serializer for the bin1 format; stamps the tx-format header so consumers
+ * can tell it apart from JSON during migration.
+ */
+public class TransactionEventSerializer implements Serializer<TransactionEvent> {
+
+    private static final byte[] BIN1 = TransactionEventCodec.FORMAT_BIN1.getBytes(StandardCharsets.US_ASCII);
+
+    private final TransactionEventCodec codec = new TransactionEventCodec();
+
+    @Override
+    public byte[] serialize(String topic, TransactionEvent data) {
+        return data == null ? null : codec.encodeBinary(data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, TransactionEvent data) {
+        headers.remove(TransactionEventCodec.HEADER_FORMAT);
+        headers.add(TransactionEventCodec.HEADER_FORMAT, BIN1);
+        return serialize(topic, data);
+    }
+}
@@ -0,0 +1,103 @@
+package com.bank.fraud.kafka;
+
+import com.bank.fraud.config.KafkaConfig;
+import com.bank.fraud.domain.TransactionEvent;
+import com.bank.fraud.service.MetricsService;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Parallel listener (app.consumer.mode=parallel): records of one partition are fanned out to
+ * virtual threads keyed by customerNo. Events of the same customer keep their partition order
+ * (velocity counters, open-case reuse), different customers no longer wait on each other's I/O.
+ * <p>
+ * Each record is acked when its task finishes; the container commits an offset only after all
+ * earlier offsets of the partition are acked (async acks), so a crash replays from the oldest
+ * unfinished record.
+ */
+@Component
+@ConditionalOnProperty(name = "app.consumer.mode", havingValue = "parallel")
+public class TransactionParallelConsumer implements ConsumerSeekAware {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionParallelConsumer.class);
+
+    private final TransactionEventCodec codec;
+    private final KeyOrderedExecutor executor = new KeyOrderedExecutor();
+    private final TransactionPipeline pipeline;
+    private final MetricsService metrics;
+    private final int maxAttempts;
+
+    public TransactionParallelConsumer(
+            TransactionEventCodec codec,
+            TransactionPipeline pipeline,
+            MetricsService metrics,
+            @Value("${app.consumer.parallel.maxAttempts}") int maxAttempts
+    ) {
+        this.codec = codec;
+        this.pipeline = pipeline;
+        this.metrics = metrics;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @KafkaListener(
+            topics = KafkaTopics.TRANSACTIONS_CREATED,
+            containerFactory = KafkaConfig.PARALLEL_FACTORY,
+            properties = "max.poll.records=${app.consumer.parallel.maxInFlight}"
+    )
+    public void onMessage(ConsumerRecord<String, byte[]> rec, Acknowledgment ack) throws Exception {
+        TransactionEvent ev = codec.decode(rec.value(), rec.headers());
+        String key = ev.customerNo() != null ? ev.customerNo() : String.valueOf(rec.key());
+
+        executor.submit(key, () -> {
+            processWithRetry(ev, rec);
+            ack.acknowledge();
+        });
+    }
+
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        pipeline.onPartitionsAssigned(assignments.keySet());
+    }
+
+    /**
+     * Like the container's default error handler: retry a few times, then log and skip,
+     * otherwise a poison record would hold back the partition's commits forever.
+     */
+    private void processWithRetry(TransactionEvent ev, ConsumerRecord<String, byte[]> rec) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                pipeline.process(TransactionPipeline.scope(rec.topic(), rec.partition()), ev);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt >= maxAttempts) {
+                    metrics.incKafkaFailed();
+                    log.error("Giving up on {}-{}@{} eventId={} after {} attempts",
+                            rec.topic(), rec.partition(), rec.offset(), ev.eventId(), attempt, e);
+                    return;
+                }
+                try {
+                    Thread.sleep(100L * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.close();
+    }
+}
@@ -0,0 +1,320 @@
+package com.bank.fraud.kafka;
+
+import com.bank.fraud.domain.FraudAlert;
+import com.bank.fraud.domain.TransactionEvent;
+import com.bank.fraud.policy.PolicyEngine;
+import com.bank.fraud.policy.ShadowPolicyEvaluator;
+import com.bank.fraud.service.ActionService;
+import com.bank.fraud.service.AlertAggregator;
+import com.bank.fraud.service.CaseService;
+import com.bank.fraud.service.EvidenceStore;
+import com.bank.fraud.service.IdempotencyService;
+import com.bank.fraud.service.MetricsService;
+import com.bank.fraud.service.VelocityService;
+import com.bank.fraud.service.WhitelistService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Whitelist -> velocity -> policy -> alert/case/block, shared by the record and batch listeners.
+ * <p>
+ * Velocity is counted in Redis before the database transaction and is not undone when that
+ * transaction rolls back; instead VelocityService counts each eventId once, so the redelivery of
+ * a rolled-back event (or batch) is checked against its windows without being added again.
+ */
+@Component
+public class TransactionPipeline {
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final PolicyEngine policyEngine;
+    private final ShadowPolicyEvaluator shadow;
+    private final CaseService caseService;
+    private final AlertAggregator aggregator;
+    private final EvidenceStore evidenceStore;
+    private final ActionService actionService;
+    private final VelocityService velocityService;
+    private final WhitelistService whitelistService;
+    private final IdempotencyService idempotency;
+    private final MetricsService metrics;
+    private final TransactionTemplate tx;
+
+    public TransactionPipeline(
+            PolicyEngine policyEngine,
+            ShadowPolicyEvaluator shadow,
+            CaseService caseService,
+            AlertAggregator aggregator,
+            EvidenceStore evidenceStore,
+            ActionService actionService,
+            VelocityService velocityService,
+            WhitelistService whitelistService,
+            IdempotencyService idempotency,
+            MetricsService metrics,
+            PlatformTransactionManager txManager
+    ) {
+        this.policyEngine = policyEngine;
+        this.shadow = shadow;
+        this.caseService = caseService;
+        this.aggregator = aggregator;
+        this.evidenceStore = evidenceStore;
+        this.actionService = actionService;
+        this.velocityService = velocityService;
+        this.whitelistService = whitelistService;
+        this.idempotency = idempotency;
+        this.metrics = metrics;
+        this.tx = new TransactionTemplate(txManager);
+    }
+
+    /**
+     * Idempotency scope of a record: eventIds are deduplicated per topic-partition.
+     */
+    public static String scope(String topic, int partition) {
+        return topic + "-" + partition;
+    }
+
+    /**
+     * Listeners call this for newly assigned partitions (see ConsumerSeekAware).
+     */
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+        idempotency.forget(partitions.stream().map(tp -> scope(tp.topic(), tp.partition())).toList());
+    }
+
+    public void process(String scope, TransactionEvent ev) {
+        if (idempotency.isDuplicate(scope, ev.eventId())) return;
+        run(ev);
+        idempotency.markProcessed(scope, ev.eventId());
+    }
+
+    private void run(TransactionEvent ev) {
+        // metrics: kafka processed
+        metrics.incKafkaProcessed();
+
+        // 0) Whitelist FIRST
+        WhitelistService.Decision wlDecision = whitelistService.evaluate(ev);
+        if (wlDecision.active() && wlDecision.hardBypass()) return;
+
+        // 1) Velocity check
+        VelocityService.Verdict vel = velocityService.registerAndCheck(ev);
+
+        // 2) Policy rule evaluation (minus rule-level whitelist); candidate policy, if any, in shadow
+        List<PolicyEngine.MatchedRule> matched = policyEngine.evaluate(ev);
+        shadow.submit(ev, matched);
+        List<PolicyEngine.MatchedRule> hits = new ArrayList<>();
+        for (PolicyEngine.MatchedRule hit : matched) {
+            if (!whitelistService.isRuleWhitelisted(hit)) hits.add(hit);
+        }
+
+        tx.executeWithoutResult(s -> {
+            Pending pending = new Pending();
+            apply(ev, wlDecision, vel, hits, pending);
+            write(pending);
+        });
+    }
+
+    /**
+     * One poll worth of events: whitelist and velocity are resolved in bulk,
+     * alerts/cases/blocks for the whole batch are written in a single transaction.
+     */
+    public void processBatch(List<String> scopes, List<TransactionEvent> all) {
+        if (all.isEmpty()) return;
+
+        // redeliveries are dropped before they touch velocity or the case tables
+        boolean[] dup = idempotency.duplicates(scopes, all.stream().map(TransactionEvent::eventId).toList());
+        List<TransactionEvent> events = new ArrayList<>(all.size());
+        for (int i = 0; i < all.size(); i++) {
+            if (!dup[i]) events.add(all.get(i));
+        }
+
+        run(events);
+        idempotency.markProcessed(scopes, all.stream().map(TransactionEvent::eventId).toList());
+    }
+
+    private void run(List<TransactionEvent> events) {
+        if (events.isEmpty()) return;
+        metrics.incKafkaProcessed(events.size());
+        metrics.recordBatchSize(events.size());
+
+        // 0) Whitelist FIRST (3 queries for the whole batch)
+        List<WhitelistService.Decision> decisions = whitelistService.evaluateAll(events);
+        List<TransactionEvent> live = new ArrayList<>(events.size());
+        List<WhitelistService.Decision> liveDecisions = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            WhitelistService.Decision d = decisions.get(i);
+            if (d.active() && d.hardBypass()) continue;
+            live.add(events.get(i));
+            liveDecisions.add(d);
+        }
+        if (live.isEmpty()) return;
+
+        // 1) Velocity check (pipelined, in event order so per-customer counts stay exact)
+        List<VelocityService.Verdict> verdicts = velocityService.registerAndCheckAll(live);
+
+        // 2) Policy rule evaluation + one rule-whitelist lookup for every rule hit in the batch
+        List<List<PolicyEngine.MatchedRule>> hits = new ArrayList<>(live.size());
+        Set<String> hitRuleIds = new HashSet<>();
+        for (TransactionEvent ev : live) {
+            List<PolicyEngine.MatchedRule> h = policyEngine.evaluate(ev);
+            for (PolicyEngine.MatchedRule m : h) hitRuleIds.add(m.id());
+            hits.add(h);
+        }
+        shadow.submitAll(live, hits);
+        Set<String> whitelistedRules = whitelistService.whitelistedRuleIds(hitRuleIds);
+        if (!whitelistedRules.isEmpty()) {
+            for (List<PolicyEngine.MatchedRule> h : hits) h.removeIf(m -> whitelistedRules.contains(m.id()));
+        }
+
+        tx.executeWithoutResult(s -> {
+            Pending pending = new Pending();
+            for (int i = 0; i < live.size(); i++) {
+                apply(live.get(i), liveDecisions.get(i), verdicts.get(i), hits.get(i), pending);
+            }
+            write(pending);
+        });
+    }
+
+    private void apply(TransactionEvent ev,
+                       WhitelistService.Decision wlDecision,
+                       VelocityService.Verdict vel,
+                       List<PolicyEngine.MatchedRule> hits,
+                       Pending pending) {
+        if (vel.tripped().isEmpty() && hits.isEmpty()) return;
+        boolean blockAllowed = !(wlDecision.active() && !wlDecision.hardBypass());
+
+        // the transaction itself is stored once (EvidenceStore); alerts only carry what tripped
+        Map<String, Object> evidence = baseDetails(ev);
+        evidence.put("whitelist", whitelistDetails(wlDecision));
+        String evidenceJson = toJson(evidence);
+
+        // one alert per tripped velocity rule (dimension x window)
+        for (VelocityService.Window w : vel.tripped()) {
+            raise(ev, "VELOCITY", w.ruleId(), w.severity(),
+                    "Velocity rule violated (high frequency / amount burst): " + w.ruleId(),
+                    toJson(Map.of("velocity", w.toMap())), evidenceJson,
+                    "BLOCK_CREDIT".equalsIgnoreCase(w.action()) && blockAllowed, "Velocity rule violated", pending);
+        }
+
+        for (PolicyEngine.MatchedRule hit : hits) {
+            Map<String, Object> details = new HashMap<>();
+            details.put("rule", Map.of(
+                    "id", hit.id(),
+                    "type", hit.type(),
+                    "value", hit.value(),
+                    "severity", hit.severity(),
+                    "action", hit.action(),
+                    "policyId", hit.policyId(),
+                    "policyVersion", hit.policyVersion()
+            ));
+
+            String alertType = hit.type().startsWith("BETTING") ? "BETTING_EXPOSURE" : "AML_PATTERN";
+
+            raise(ev, alertType, hit.id(), hit.severity(),
+                    hit.severity() + " severity rule hit: " + hit.id(),
+                    toJson(details), evidenceJson,
+                    "BLOCK_CREDIT".equalsIgnoreCase(hit.action()) && blockAllowed, "Policy hit: " + hit.id(), pending);
+        }
+    }
+
+    /**
+     * Alert + case (+ block decision) for one tripped rule. While the rule's aggregation window for
+     * this customer is open the hit is only counted into the window's alert. Every blocking hit,
+     * in a window or not, asks for a block: the write is a no-op while the customer is blocked, so an
+     * unblock in the middle of a window is followed by a new block on the next blocking hit.
+     */
+    private void raise(TransactionEvent ev, String alertType, String ruleId, String severity, String summary,
+                       String detailsJson, String evidenceJson, boolean block, String blockReason, Pending pending) {
+        if (aggregator.join(ev.customerNo(), ruleId, ev.eventId(), detailsJson, evidenceJson) == null) {
+            pending.evidence.putIfAbsent(ev.eventId(), evidenceJson);
+
+            // Ensure case exists/reuse open
+            Long caseId = caseService.openOrReuseOpenCase(
+                    ev.customerNo(),
+                    priority(severity),
+                    summary,
+                    ev.eventId(),
+                    "system"
+            );
+
+            // alert (already attached to the case) + timeline
+            FraudAlert alert = caseService.recordAlert(
+                    caseId,
+                    ev.eventId(), ev.customerNo(),
+                    alertType, severity,
+                    ruleId,
+                    detailsJson,
+                    "system"
+            );
+            metrics.incAlert(alertType, severity);
+            aggregator.open(ev.customerNo(), ruleId, alert);
+        }
+
+        if (block) {
+            pending.blocks.putIfAbsent(ev.customerNo(), blockReason); // first reason of the batch wins
+        }
+    }
+
+    /**
+     * Evidence rows (one batched insert) and block decisions (one write per customer, a no-op if
+     * already blocked) of one event / batch.
+     */
+    private void write(Pending pending) {
+        evidenceStore.saveAll(pending.evidence);
+        pending.blocks.forEach((customerNo, reason) -> actionService.blockCredit(customerNo, reason, "system"));
+    }
+
+    // collected while applying an event / batch, written at the end of its transaction
+    private static final class Pending {
+        final Map<String, String> evidence = new LinkedHashMap<>(); // eventId -> evidence JSON
+        final Map<String, String> blocks = new LinkedHashMap<>();   // customerNo -> block reason
+    }
+
+    // severity -> priority
+    private static String priority(String severity) {
+        if ("HIGH".equalsIgnoreCase(severity)) return "P1";
+        if ("MEDIUM".equalsIgnoreCase(severity)) return "P2";
+        return "P3";
+    }
+
+    private Map<String, Object> whitelistDetails(WhitelistService.Decision wlDecision) {
+        return wlDecision.active() ? Map.of(
+                "matchType", wlDecision.matchType(),
+                "matchValue", wlDecision.matchValue(),
+                "reason", wlDecision.reason(),
+                "hardBypass", wlDecision.hardBypass()
+        ) : Map.of("active", false);
+    }
+
+    private Map<String, Object> baseDetails(TransactionEvent ev) {
+        Map<String, Object> d = new HashMap<>();
+        d.put("eventId", ev.eventId());
+        d.put("customerNo", ev.customerNo());
+        d.put("fromIban", ev.fromIban());
+        d.put("toIban", ev.toIban());
+        d.put("amountCents", ev.amountCents());
+        d.put("currency", ev.currency());
+        d.put("channel", ev.channel());
+        d.put("mcc", ev.mcc());
+        d.put("description", ev.description());
+        return d;
+    }
+
+    private String toJson(Object o) {
+        try {
+            return om.writeValueAsString(o);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
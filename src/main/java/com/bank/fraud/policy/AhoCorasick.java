@@ -0,0 +1,125 @@
+package com.bank.fraud.policy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Aho-Corasick automaton over {@link TextFold}-folded text: finds every keyword occurring in
+ * the input in a single pass, whatever the number of keywords. Built once, then read-only.
+ */
+public class AhoCorasick<T> {
+
+    private final Node<T> root;
+
+    private AhoCorasick(Node<T> root) {
+        this.root = root;
+    }
+
+    /**
+     * Calls {@code sink} once per occurrence of a keyword in {@code text}.
+     */
+    public void search(CharSequence text, Consumer<T> sink) {
+        Node<T> n = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = TextFold.fold(text.charAt(i));
+            Node<T> next;
+            while ((next = n.child(c)) == null && n != root) n = n.fail;
+            n = next == null ? root : next;
+            for (T v : n.output) sink.accept(v);
+        }
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    public static class Builder<T> {
+        private final BuildNode<T> root = new BuildNode<>();
+
+        public Builder<T> add(String keyword, T value) {
+            String folded = TextFold.fold(keyword);
+            if (folded.isEmpty()) return this;
+            BuildNode<T> n = root;
+            for (int i = 0; i < folded.length(); i++) {
+                n = n.children.computeIfAbsent(folded.charAt(i), c -> new BuildNode<>());
+            }
+            n.values.add(value);
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public AhoCorasick<T> build() {
+            // freeze goto edges into sorted arrays
+            Map<BuildNode<T>, Node<T>> frozen = new IdentityHashMap<>();
+            ArrayDeque<BuildNode<T>> q = new ArrayDeque<>();
+            q.add(root);
+            frozen.put(root, new Node<>());
+            while (!q.isEmpty()) {
+                BuildNode<T> b = q.poll();
+                Node<T> n = frozen.get(b);
+                n.keys = new char[b.children.size()];
+                n.next = (Node<T>[]) new Node<?>[b.children.size()];
+                int i = 0;
+                for (Map.Entry<Character, BuildNode<T>> e : b.children.entrySet()) {
+                    Node<T> child = new Node<>();
+                    frozen.put(e.getValue(), child);
+                    n.keys[i] = e.getKey();
+                    n.next[i] = child;
+                    i++;
+                    q.add(e.getValue());
+                }
+                n.own = b.values;
+            }
+
+            // failure links + merged outputs, breadth first
+            Node<T> r = frozen.get(root);
+            r.fail = r;
+            r.output = (T[]) r.own.toArray();
+            ArrayDeque<Node<T>> bfs = new ArrayDeque<>();
+            for (Node<T> child : r.next) {
+                child.fail = r;
+                bfs.add(child);
+            }
+            while (!bfs.isEmpty()) {
+                Node<T> n = bfs.poll();
+                List<T> out = new ArrayList<>(n.own);
+                for (T v : n.fail.output) out.add(v);
+                n.output = (T[]) out.toArray();
+                for (int i = 0; i < n.keys.length; i++) {
+                    char c = n.keys[i];
+                    Node<T> child = n.next[i];
+                    Node<T> f = n.fail;
+                    Node<T> target;
+                    while ((target = f.child(c)) == null && f != r) f = f.fail;
+                    child.fail = (target == null || target == child) ? r : target;
+                    bfs.add(child);
+                }
+            }
+            return new AhoCorasick<>(r);
+        }
+    }
+
+    private static final class BuildNode<T> {
+        final TreeMap<Character, BuildNode<T>> children = new TreeMap<>();
+        final List<T> values = new ArrayList<>(1);
+    }
+
+    private static final class Node<T> {
+        char[] keys;
+        Node<T>[] next;
+        Node<T> fail;
+        List<T> own;
+        T[] output;
+
+        Node<T> child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? next[i] : null;
+        }
+    }
+}
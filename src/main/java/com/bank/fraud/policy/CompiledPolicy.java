@@ -0,0 +1,117 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import static com.bank.fraud.policy.PolicyModels.*;
+
+/**
+ * A {@link Policy} indexed once at load time, so evaluation is one pass per field:
+ * <ul>
+ *   <li>BETTING_IBAN_PREFIX → prefix trie walked along toIban</li>
+ *   <li>BETTING_MCC → hash lookup of mcc (case-insensitive)</li>
+ *   <li>KEYWORD → Aho-Corasick over the Turkish-folded description</li>
+ *   <li>EXPRESSION → predicate compiled from the rule's expression ({@link RuleExpression}), tested in turn</li>
+ * </ul>
+ * Matches are reported once per rule, in the order the rules appear in the policy file.
+ * Immutable once built, so it can be shared by any number of evaluating threads and swapped as a whole.
+ */
+public class CompiledPolicy {
+
+    private final Policy policy;
+    private final String version;
+    private final Instant loadedAt = Instant.now();
+    private final PrefixTrie<Indexed> ibanPrefixes = new PrefixTrie<>();
+    private final Map<String, List<Indexed>> mccs = new HashMap<>();
+    private final AhoCorasick<Indexed> keywords;
+    private final List<Expression> expressions = new ArrayList<>();
+
+    private CompiledPolicy(Policy policy, String version) {
+        this.policy = policy;
+        this.version = version;
+
+        AhoCorasick.Builder<Indexed> kw = AhoCorasick.builder();
+        List<Rule> rules = policy.rules == null ? List.of() : policy.rules;
+        for (int i = 0; i < rules.size(); i++) {
+            Rule r = rules.get(i);
+            if (r.type == null || r.value == null) continue;
+            Indexed x = new Indexed(i, new PolicyEngine.MatchedRule(
+                    r.id, r.type, r.severity, r.action, r.value, policy.policyId, version));
+            switch (r.type) {
+                case "BETTING_IBAN_PREFIX" -> ibanPrefixes.put(r.value, x);
+                case "BETTING_MCC" -> mccs.computeIfAbsent(r.value.toUpperCase(Locale.ROOT), k -> new ArrayList<>(1)).add(x);
+                case "KEYWORD" -> kw.add(r.value, x);
+                case "EXPRESSION" -> expressions.add(new Expression(x, RuleExpression.compile(r.value)));
+                default -> { }
+            }
+        }
+        this.keywords = kw.build();
+    }
+
+    /**
+     * @param version identifies the policy content (see PolicyEngine), carried on every match
+     * @throws IllegalArgumentException if the policy does not pass {@link PolicyValidator}
+     */
+    public static CompiledPolicy compile(Policy policy, String version) {
+        List<String> problems = PolicyValidator.problems(policy);
+        if (!problems.isEmpty()) throw new IllegalArgumentException("Invalid policy: " + String.join("; ", problems));
+        return new CompiledPolicy(policy, version);
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    public String policyId() {
+        return policy.policyId;
+    }
+
+    public String version() {
+        return version;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+
+    public List<PolicyEngine.MatchedRule> evaluate(TransactionEvent ev) {
+        List<Indexed> hits = new ArrayList<>(2);
+
+        if (ev.toIban() != null) ibanPrefixes.forEachPrefixOf(ev.toIban(), hits::add);
+
+        if (ev.mcc() != null) {
+            List<Indexed> m = mccs.get(ev.mcc().toUpperCase(Locale.ROOT));
+            if (m != null) hits.addAll(m);
+        }
+
+        if (ev.description() != null) keywords.search(ev.description(), hits::add);
+
+        for (Expression e : expressions) {
+            if (e.predicate.test(ev)) hits.add(e.rule);
+        }
+
+        if (hits.isEmpty()) return new ArrayList<>(0);
+
+        // policy order, one match per rule (a keyword can occur several times)
+        hits.sort((a, b) -> Integer.compare(a.index, b.index));
+        List<PolicyEngine.MatchedRule> out = new ArrayList<>(hits.size());
+        int last = -1;
+        for (Indexed x : hits) {
+            if (x.index == last) continue;
+            out.add(x.match);
+            last = x.index;
+        }
+        return out;
+    }
+
+    private record Indexed(int index, PolicyEngine.MatchedRule match) {}
+
+    private record Expression(Indexed rule, Predicate<TransactionEvent> predicate) {}
+}
@@ -1,49 +1,256 @@
 ﻿package com.bank.fraud.policy;
 
 import com.bank.fraud.domain.TransactionEvent;
+import com.bank.fraud.service.AuditService;
+import com.bank.fraud.service.MetricsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.bank.fraud.policy.PolicyModels.*;
 
+/**
+ * Holds the active policy as an immutable {@link CompiledPolicy} behind an atomic reference.
+ * <p>
+ * A reload (file watcher or POST /v1/admin/policy/reload) parses, validates and compiles the file
+ * on the reloading thread and only then swaps the reference; evaluations never lock and always
+ * see one complete policy. An invalid file is rejected and the running policy stays active.
+ * The version is a hash of the file content, so every instance reports the same version for the same file.
+ * <p>
+ * An optional candidate policy (app.policy.candidatePath) is loaded and reloaded the same way; it is
+ * never used for decisions, only evaluated in shadow by {@link ShadowPolicyEvaluator}.
+ */
 @Component
 public class PolicyEngine {
 
+    private static final Logger log = LoggerFactory.getLogger(PolicyEngine.class);
+
+    private static final String ACTIVE = "active";
+    private static final String CANDIDATE = "candidate";
+
     private final ObjectMapper om = new ObjectMapper();
-    private Policy policy;
+    private final Path policyPath;
+    private final Path candidatePath; // null = no shadow policy
+    private final boolean watch;
+    private final long debounceMs;
+    private final MetricsService metrics;
+    private final AuditService audit;
+
+    private final AtomicReference<CompiledPolicy> current = new AtomicReference<>();
+    private final AtomicReference<CompiledPolicy> candidate = new AtomicReference<>();
+    private final Object reloadLock = new Object();
+    private volatile WatchService watchService;
+
+    public PolicyEngine(
+            @Value("${app.policyPath}") String policyPath,
+            @Value("${app.policy.candidatePath}") String candidatePath,
+            @Value("${app.policy.watch}") boolean watch,
+            @Value("${app.policy.watchDebounceMs}") long debounceMs,
+            MetricsService metrics,
+            AuditService audit
+    ) {
+        this.policyPath = Path.of(policyPath);
+        this.candidatePath = candidatePath == null || candidatePath.isBlank() ? null : Path.of(candidatePath);
+        this.watch = watch;
+        this.debounceMs = debounceMs;
+        this.metrics = metrics;
+        this.audit = audit;
 
-    public PolicyEngine(@Value("${app.policyPath}") String policyPath) {
         try {
-            this.policy = om.readValue(new File(policyPath), Policy.class);
+            current.set(load(this.policyPath));
         } catch (Exception e) {
-            // safe fallback
-            this.policy = new Policy();
-            this.policy.policyId = "fallback";
-            this.policy.rules = List.of();
+            // keep consuming with no rules; a fixed file is picked up by the next reload
+            log.error("Policy {} could not be loaded, starting with an empty fallback policy", policyPath, e);
+            metrics.incPolicyReloadFailed(ACTIVE);
+            Policy fallback = new Policy();
+            fallback.policyId = "fallback";
+            fallback.rules = List.of();
+            current.set(CompiledPolicy.compile(fallback, "none"));
+        }
+        log.info("Policy {} version {} active", current.get().policyId(), current.get().version());
+
+        if (this.candidatePath != null) {
+            try {
+                candidate.set(load(this.candidatePath));
+                log.info("Candidate policy {} version {} loaded for shadow evaluation",
+                        candidate.get().policyId(), candidate.get().version());
+            } catch (Exception e) {
+                log.error("Candidate policy {} could not be loaded, shadow evaluation off until it is fixed", candidatePath, e);
+                metrics.incPolicyReloadFailed(CANDIDATE);
+            }
         }
+
+        metrics.gauge("policy_rules_loaded", "Rules of the active policy", () -> {
+            Policy p = current.get().policy();
+            return (p.rules == null ? 0 : p.rules.size()) + (p.velocityRules == null ? 0 : p.velocityRules.size());
+        });
+        metrics.gauge("policy_loaded_timestamp_seconds", "When the active policy was loaded",
+                () -> current.get().loadedAt().getEpochSecond());
     }
 
+    /**
+     * Single pass over toIban / mcc / description, independent of the number of rules.
+     */
     public List<MatchedRule> evaluate(TransactionEvent ev) {
-        List<MatchedRule> matches = new ArrayList<>();
-        if (policy.rules == null) return matches;
+        return current.get().evaluate(ev);
+    }
+
+    public List<VelocityRule> velocityRules() {
+        Policy p = current.get().policy();
+        return p.velocityRules == null ? List.of() : p.velocityRules;
+    }
+
+    /**
+     * Shadow policy, or null when none is configured / it failed to load.
+     */
+    public CompiledPolicy candidate() {
+        return candidate.get();
+    }
 
-        for (Rule r : policy.rules) {
-            if (r.type == null) continue;
-            boolean hit = switch (r.type) {
-                case "BETTING_IBAN_PREFIX" -> ev.toIban() != null && ev.toIban().startsWith(r.value);
-                case "BETTING_MCC" -> ev.mcc() != null && ev.mcc().equalsIgnoreCase(r.value);
-                case "KEYWORD" -> ev.description() != null && ev.description().toLowerCase().contains(r.value.toLowerCase());
-                default -> false;
-            };
-            if (hit) matches.add(new MatchedRule(r.id, r.type, r.severity, r.action, r.value));
+    public PolicyInfo info() {
+        return PolicyInfo.of("ACTIVE", current.get(), null);
+    }
+
+    public PolicyInfo candidateInfo() {
+        CompiledPolicy c = candidate.get();
+        return c == null ? PolicyInfo.none() : PolicyInfo.of("CANDIDATE", c, null);
+    }
+
+    /**
+     * Re-reads the policy file (and the candidate, if configured). Status is RELOADED,
+     * UNCHANGED (same content) or REJECTED (unreadable / invalid; the previous policy stays
+     * active and error says why).
+     */
+    public PolicyInfo reload(String actor) {
+        synchronized (reloadLock) {
+            if (candidatePath != null) swap(CANDIDATE, candidatePath, candidate, actor);
+            return swap(ACTIVE, policyPath, current, actor);
         }
-        return matches;
     }
 
-    public record MatchedRule(String id, String type, String severity, String action, String value) {}
+    private PolicyInfo swap(String role, Path path, AtomicReference<CompiledPolicy> slot, String actor) {
+        long start = System.nanoTime();
+        CompiledPolicy prev = slot.get();
+        CompiledPolicy next;
+        try {
+            next = load(path);
+        } catch (Exception e) {
+            metrics.recordPolicyReload(role, "rejected", System.nanoTime() - start);
+            metrics.incPolicyReloadFailed(role);
+            log.error("{} policy reload rejected, keeping version {}", role, prev == null ? null : prev.version(), e);
+            return prev == null ? PolicyInfo.none() : PolicyInfo.of("REJECTED", prev, e.getMessage());
+        }
+
+        if (prev != null && next.version().equals(prev.version())) {
+            metrics.recordPolicyReload(role, "unchanged", System.nanoTime() - start);
+            return PolicyInfo.of("UNCHANGED", prev, null);
+        }
+
+        slot.set(next);
+        metrics.recordPolicyReload(role, "reloaded", System.nanoTime() - start);
+        String prevVersion = prev == null ? null : prev.version();
+        log.info("{} policy {} version {} loaded (was {})", role, next.policyId(), next.version(), prevVersion);
+        audit.write(actor, "RELOAD_POLICY", "POLICY", role + ":" + next.policyId(),
+                "{\"version\":\"" + next.version() + "\",\"previousVersion\":\"" + prevVersion + "\"}");
+        return PolicyInfo.of("RELOADED", next, null);
+    }
+
+    private CompiledPolicy load(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        Policy p = om.readValue(bytes, Policy.class);
+        return CompiledPolicy.compile(p, version(bytes));
+    }
+
+    private static String version(byte[] content) {
+        try {
+            byte[] d = MessageDigest.getInstance("SHA-256").digest(content);
+            return HexFormat.of().formatHex(d, 0, 6);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Watches the policy directories (not the files: editors and ConfigMap mounts replace them by rename).
+     * Bursts of events are coalesced; reloading identical content is a no-op.
+     */
+    @PostConstruct
+    void startWatcher() {
+        if (!watch) return;
+        Set<Path> dirs = new LinkedHashSet<>();
+        dirs.add(policyPath.toAbsolutePath().getParent());
+        if (candidatePath != null) dirs.add(candidatePath.toAbsolutePath().getParent());
+        try {
+            WatchService ws = FileSystems.getDefault().newWatchService();
+            for (Path dir : dirs) {
+                dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            }
+            watchService = ws;
+        } catch (IOException e) {
+            log.warn("Cannot watch {} for policy changes; use POST /v1/admin/policy/reload", dirs, e);
+            return;
+        }
+        Thread.ofPlatform().daemon().name("policy-watcher").start(this::watchLoop);
+    }
+
+    private void watchLoop() {
+        WatchService ws = watchService;
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                Thread.sleep(debounceMs);
+                // whatever arrived while waiting is covered by the same reload
+                key.pollEvents();
+                key.reset();
+                reload("policy-watcher");
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // shutting down
+        }
+    }
+
+    @PreDestroy
+    void stopWatcher() throws IOException {
+        WatchService ws = watchService;
+        if (ws != null) ws.close();
+    }
+
+    public record MatchedRule(String id, String type, String severity, String action, String value,
+                              String policyId, String policyVersion) {}
+
+    public record PolicyInfo(String status, String policyId, String version, Instant loadedAt,
+                             int rules, int velocityRules, String error) {
+        static PolicyInfo none() {
+            return new PolicyInfo("NONE", null, null, null, 0, 0, null);
+        }
+
+        static PolicyInfo of(String status, CompiledPolicy c, String error) {
+            Policy p = c.policy();
+            return new PolicyInfo(status, c.policyId(), c.version(), c.loadedAt(),
+                    p.rules == null ? 0 : p.rules.size(),
+                    p.velocityRules == null ? 0 : p.velocityRules.size(),
+                    error);
+        }
+    }
 }
@@ -6,13 +6,28 @@ public class PolicyModels {
     public static class Policy {
         public String policyId;
         public List<Rule> rules;
+        public List<VelocityRule> velocityRules;
     }
 
     public static class Rule {
         public String id;
-        public String type;       // BETTING_IBAN_PREFIX, BETTING_MCC, KEYWORD
+        public String type;       // BETTING_IBAN_PREFIX, BETTING_MCC, KEYWORD, EXPRESSION
         public String severity;   // LOW, MEDIUM, HIGH
         public String action;     // ALERT_ONLY, BLOCK_CREDIT
-        public String value;      // prefix or mcc or keyword
+        public String value;      // prefix or mcc or keyword or expression (see RuleExpression)
+    }
+
+    /**
+     * Velocity limit over a sliding window, counted per dimension value.
+     */
+    public static class VelocityRule {
+        public String id;
+        public String dimension;          // CUSTOMER, TO_IBAN, FROM_IBAN, CUSTOMER_CHANNEL
+        public int windowSeconds;
+        public int bucketSeconds;         // window granularity
+        public Integer maxTxCount;        // null = no count limit
+        public Long maxTotalAmountCents;  // null = no amount limit
+        public String severity;           // LOW, MEDIUM, HIGH
+        public String action;             // ALERT_ONLY, BLOCK_CREDIT
     }
 }
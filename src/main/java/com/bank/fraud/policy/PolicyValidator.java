@@ -0,0 +1,88 @@
+package com.bank.fraud.policy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.bank.fraud.policy.PolicyModels.*;
+
+/**
+ * Structural checks run before a policy is compiled; a policy with problems is never swapped in.
+ * Rule ids must be unique across rules and velocityRules (alerts and rule whitelists refer to them).
+ */
+public final class PolicyValidator {
+
+    static final Set<String> RULE_TYPES = Set.of("BETTING_IBAN_PREFIX", "BETTING_MCC", "KEYWORD", "EXPRESSION");
+    static final Set<String> DIMENSIONS = Set.of("CUSTOMER", "TO_IBAN", "FROM_IBAN", "CUSTOMER_CHANNEL");
+    static final Set<String> SEVERITIES = Set.of("LOW", "MEDIUM", "HIGH");
+    static final Set<String> ACTIONS = Set.of("ALERT_ONLY", "BLOCK_CREDIT");
+
+    private PolicyValidator() {}
+
+    /**
+     * @return human readable problems, empty when the policy is valid
+     */
+    public static List<String> problems(Policy p) {
+        List<String> out = new ArrayList<>();
+        if (p == null) {
+            out.add("policy is empty");
+            return out;
+        }
+        if (blank(p.policyId)) out.add("policyId is required");
+
+        Set<String> ids = new HashSet<>();
+        List<Rule> rules = p.rules == null ? List.of() : p.rules;
+        for (int i = 0; i < rules.size(); i++) {
+            Rule r = rules.get(i);
+            String at = "rules[" + i + "]";
+            if (r == null) { out.add(at + " is null"); continue; }
+            if (blank(r.id)) out.add(at + ".id is required");
+            else if (!ids.add(r.id)) out.add(at + ".id duplicated: " + r.id);
+            if (!known(RULE_TYPES, r.type)) out.add(at + ".type unknown: " + r.type);
+            if (!known(SEVERITIES, r.severity)) out.add(at + ".severity unknown: " + r.severity);
+            if (!known(ACTIONS, r.action)) out.add(at + ".action unknown: " + r.action);
+            if (blank(r.value)) out.add(at + ".value is required");
+            else if ("EXPRESSION".equals(r.type)) {
+                try {
+                    RuleExpression.compile(r.value);
+                } catch (IllegalArgumentException e) {
+                    out.add(at + ".value: " + e.getMessage());
+                }
+            }
+        }
+
+        List<VelocityRule> velocity = p.velocityRules == null ? List.of() : p.velocityRules;
+        for (int i = 0; i < velocity.size(); i++) {
+            VelocityRule r = velocity.get(i);
+            String at = "velocityRules[" + i + "]";
+            if (r == null) { out.add(at + " is null"); continue; }
+            if (blank(r.id)) out.add(at + ".id is required");
+            else if (!ids.add(r.id)) out.add(at + ".id duplicated: " + r.id);
+            if (!known(DIMENSIONS, r.dimension)) out.add(at + ".dimension unknown: " + r.dimension);
+            if (r.windowSeconds <= 0) out.add(at + ".windowSeconds must be > 0");
+            if (r.bucketSeconds <= 0 || r.bucketSeconds > r.windowSeconds) {
+                out.add(at + ".bucketSeconds must be in 1..windowSeconds");
+            }
+            if (r.maxTxCount == null && r.maxTotalAmountCents == null) {
+                out.add(at + " needs maxTxCount and/or maxTotalAmountCents");
+            }
+            if (r.maxTxCount != null && r.maxTxCount <= 0) out.add(at + ".maxTxCount must be > 0");
+            if (r.maxTotalAmountCents != null && r.maxTotalAmountCents <= 0) {
+                out.add(at + ".maxTotalAmountCents must be > 0");
+            }
+            if (!known(SEVERITIES, r.severity)) out.add(at + ".severity unknown: " + r.severity);
+            if (!known(ACTIONS, r.action)) out.add(at + ".action unknown: " + r.action);
+        }
+        return out;
+    }
+
+    // Set.of(..).contains(null) throws
+    private static boolean known(Set<String> allowed, String s) {
+        return s != null && allowed.contains(s);
+    }
+
+    private static boolean blank(String s) {
+        return s == null || s.isBlank();
+    }
+}
@@ -0,0 +1,88 @@
+package com.bank.fraud.policy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Character trie mapping prefixes to values. A lookup walks the input once and reports the values
+ * of every prefix on the way, so its cost depends on the input length, not on the number of prefixes.
+ */
+public class PrefixTrie<T> {
+
+    private final Node<T> root = new Node<>();
+    private int size;
+
+    public void put(String prefix, T value) {
+        Node<T> n = root;
+        for (int i = 0; i < prefix.length(); i++) n = n.childOrCreate(prefix.charAt(i));
+        if (n.values == null) n.values = new ArrayList<>(1);
+        n.values.add(value);
+        size++;
+    }
+
+    /**
+     * Calls {@code sink} for the values of every stored prefix of {@code s}, shortest first.
+     */
+    public void forEachPrefixOf(CharSequence s, Consumer<T> sink) {
+        Node<T> n = root;
+        if (n.values != null) n.values.forEach(sink);
+        for (int i = 0; i < s.length(); i++) {
+            n = n.child(s.charAt(i));
+            if (n == null) return;
+            if (n.values != null) n.values.forEach(sink);
+        }
+    }
+
+    /**
+     * Values of the longest stored prefix of {@code s}, or null.
+     */
+    public List<T> longestPrefixOf(CharSequence s) {
+        Node<T> n = root;
+        List<T> best = n.values;
+        for (int i = 0; i < s.length(); i++) {
+            n = n.child(s.charAt(i));
+            if (n == null) break;
+            if (n.values != null) best = n.values;
+        }
+        return best;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static final class Node<T> {
+        private char[] keys = new char[0];
+        private Node<T>[] next = newArray(0);
+        private List<T> values;
+
+        Node<T> child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? next[i] : null;
+        }
+
+        Node<T> childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) return next[i];
+            int at = -i - 1;
+            char[] k = new char[keys.length + 1];
+            Node<T>[] n = newArray(keys.length + 1);
+            System.arraycopy(keys, 0, k, 0, at);
+            System.arraycopy(next, 0, n, 0, at);
+            System.arraycopy(keys, at, k, at + 1, keys.length - at);
+            System.arraycopy(next, at, n, at + 1, keys.length - at);
+            k[at] = c;
+            n[at] = new Node<>();
+            keys = k;
+            next = n;
+            return n[at];
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Node<T>[] newArray(int n) {
+            return (Node<T>[]) new Node<?>[n];
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Condition language of EXPRESSION rules, e.g.
+ * <pre>
+ * amountCents &gt; 5_000_000 AND channel = 'MOBILE' AND currency != 'TRY'
+ * toIban STARTS_WITH 'TR00BET' OR (mcc IN ('7995', '7801') AND NOT description CONTAINS 'refund')
+ * </pre>
+ * <ul>
+ *   <li>fields: the {@link TransactionEvent} components; amountCents is numeric, the rest strings</li>
+ *   <li>numeric: = != &lt; &lt;= &gt; &gt;= IN (..) NOT IN (..), literals like 5000000 or 5_000_000</li>
+ *   <li>string: = != IN (..) NOT IN (..) STARTS_WITH, exact; CONTAINS, case-insensitive with
+ *       {@link TextFold} (as KEYWORD rules); literals in single or double quotes, with \' \" and \\
+ *       for a quote or backslash inside</li>
+ *   <li>IS NULL / IS NOT NULL; otherwise a missing field makes the comparison false</li>
+ *   <li>NOT &gt; AND &gt; OR, parentheses; keywords are case-insensitive, field names are not</li>
+ * </ul>
+ * Parsed and type-checked once into a tree of closures; evaluating it does no reflection
+ * and allocates nothing.
+ */
+public final class RuleExpression {
+
+    private static final Map<String, Function<TransactionEvent, String>> STRING_FIELDS = Map.of(
+            "eventId", TransactionEvent::eventId,
+            "customerNo", TransactionEvent::customerNo,
+            "fromIban", TransactionEvent::fromIban,
+            "toIban", TransactionEvent::toIban,
+            "currency", TransactionEvent::currency,
+            "channel", TransactionEvent::channel,
+            "mcc", TransactionEvent::mcc,
+            "description", TransactionEvent::description
+    );
+    private static final String AMOUNT = "amountCents";
+    private static final Set<String> NUMERIC_OPERATORS = Set.of("=", "==", "!=", "<>", "<", "<=", ">", ">=");
+    private static final Set<String> STRING_OPERATORS = Set.of("=", "==", "!=", "<>");
+
+    private RuleExpression() {}
+
+    /**
+     * @throws IllegalArgumentException on a syntax or type error (message says where)
+     */
+    public static Predicate<TransactionEvent> compile(String expression) {
+        if (expression == null || expression.isBlank()) throw new IllegalArgumentException("expression is empty");
+        Parser p = new Parser(tokenize(expression));
+        Predicate<TransactionEvent> root = p.or();
+        if (!p.atEnd()) throw p.error("unexpected '" + p.peek().text + "'");
+        return root;
+    }
+
+    // --- parser: or := and (OR and)*, and := not (AND not)*, not := NOT not | '(' or ')' | comparison
+
+    private static final class Parser {
+        private final List<Token> tokens;
+        private int pos;
+
+        Parser(List<Token> tokens) {
+            this.tokens = tokens;
+        }
+
+        Predicate<TransactionEvent> or() {
+            List<Predicate<TransactionEvent>> terms = new ArrayList<>();
+            terms.add(and());
+            while (keyword("OR")) terms.add(and());
+            if (terms.size() == 1) return terms.get(0);
+            List<Predicate<TransactionEvent>> t = List.copyOf(terms);
+            return ev -> {
+                for (int i = 0; i < t.size(); i++) if (t.get(i).test(ev)) return true;
+                return false;
+            };
+        }
+
+        Predicate<TransactionEvent> and() {
+            List<Predicate<TransactionEvent>> terms = new ArrayList<>();
+            terms.add(not());
+            while (keyword("AND")) terms.add(not());
+            if (terms.size() == 1) return terms.get(0);
+            List<Predicate<TransactionEvent>> t = List.copyOf(terms);
+            return ev -> {
+                for (int i = 0; i < t.size(); i++) if (!t.get(i).test(ev)) return false;
+                return true;
+            };
+        }
+
+        Predicate<TransactionEvent> not() {
+            if (keyword("NOT")) {
+                Predicate<TransactionEvent> inner = not();
+                return ev -> !inner.test(ev);
+            }
+            if (symbol("(")) {
+                Predicate<TransactionEvent> inner = or();
+                expectSymbol(")");
+                return inner;
+            }
+            return comparison();
+        }
+
+        Predicate<TransactionEvent> comparison() {
+            Token f = next();
+            if (f.kind != Kind.WORD) throw error(f, "field name expected");
+            if (AMOUNT.equals(f.text)) return numeric();
+            Function<TransactionEvent, String> field = STRING_FIELDS.get(f.text);
+            if (field == null) throw error(f, "unknown field '" + f.text + "'");
+            return string(field);
+        }
+
+        private Predicate<TransactionEvent> numeric() {
+            Token is = peek();
+            if (keyword("IS")) throw error(is, "amountCents is never null");
+            boolean negate = keyword("NOT");
+            if (negate || keyword("IN")) {
+                if (negate) expectKeyword("IN");
+                long[] set = numberList();
+                return ev -> contains(set, ev.amountCents()) != negate;
+            }
+            // the operator is checked before the operand, so a missing one is reported as such
+            String op = operator(NUMERIC_OPERATORS, "comparison operator expected");
+            long v = number();
+            return switch (op) {
+                case "=", "==" -> ev -> ev.amountCents() == v;
+                case "!=", "<>" -> ev -> ev.amountCents() != v;
+                case "<" -> ev -> ev.amountCents() < v;
+                case "<=" -> ev -> ev.amountCents() <= v;
+                case ">" -> ev -> ev.amountCents() > v;
+                default -> ev -> ev.amountCents() >= v;
+            };
+        }
+
+        private Predicate<TransactionEvent> string(Function<TransactionEvent, String> field) {
+            if (keyword("IS")) {
+                boolean negate = keyword("NOT");
+                expectKeyword("NULL");
+                return negate ? ev -> field.apply(ev) != null : ev -> field.apply(ev) == null;
+            }
+            boolean negate = keyword("NOT");
+            if (negate || keyword("IN")) {
+                if (negate) expectKeyword("IN");
+                Set<String> set = stringList();
+                return ev -> {
+                    String s = field.apply(ev);
+                    return s != null && set.contains(s) != negate;
+                };
+            }
+            if (keyword("STARTS_WITH")) {
+                String v = string();
+                return ev -> {
+                    String s = field.apply(ev);
+                    return s != null && s.startsWith(v);
+                };
+            }
+            if (keyword("CONTAINS")) {
+                char[] needle = TextFold.fold(string()).toCharArray();
+                return ev -> {
+                    String s = field.apply(ev);
+                    return s != null && containsFolded(s, needle);
+                };
+            }
+            String op = operator(STRING_OPERATORS, "=, !=, IN, NOT IN, STARTS_WITH, CONTAINS or IS expected");
+            String v = string();
+            return switch (op) {
+                case "=", "==" -> ev -> v.equals(field.apply(ev));
+                default -> ev -> {
+                    String s = field.apply(ev);
+                    return s != null && !v.equals(s);
+                };
+            };
+        }
+
+        private String operator(Set<String> allowed, String expected) {
+            Token t = next();
+            if (t.kind != Kind.SYMBOL || !allowed.contains(t.text)) throw error(t, expected);
+            return t.text;
+        }
+
+        private long[] numberList() {
+            expectSymbol("(");
+            List<Long> out = new ArrayList<>();
+            do out.add(number()); while (symbol(","));
+            expectSymbol(")");
+            return out.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+
+        private Set<String> stringList() {
+            expectSymbol("(");
+            Set<String> out = new HashSet<>();
+            do out.add(string()); while (symbol(","));
+            expectSymbol(")");
+            return Set.copyOf(out);
+        }
+
+        private long number() {
+            Token t = next();
+            if (t.kind != Kind.NUMBER) throw error(t, "number expected");
+            try {
+                return Long.parseLong(t.text.replace("_", ""));
+            } catch (NumberFormatException e) {
+                throw error(t, "invalid number '" + t.text + "'");
+            }
+        }
+
+        private String string() {
+            Token t = next();
+            if (t.kind != Kind.STRING) throw error(t, "quoted string expected");
+            return t.text;
+        }
+
+        private boolean keyword(String kw) {
+            Token t = peek();
+            boolean match = switch (t.kind) {
+                case WORD -> t.text.toUpperCase(Locale.ROOT).equals(kw);
+                case SYMBOL -> "AND".equals(kw) && t.text.equals("&&")
+                        || "OR".equals(kw) && t.text.equals("||")
+                        || "NOT".equals(kw) && t.text.equals("!");
+                default -> false;
+            };
+            if (match) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectKeyword(String kw) {
+            if (!keyword(kw)) throw error(kw + " expected");
+        }
+
+        private boolean symbol(String s) {
+            Token t = peek();
+            if (t.kind == Kind.SYMBOL && t.text.equals(s)) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expectSymbol(String s) {
+            if (!symbol(s)) throw error("'" + s + "' expected");
+        }
+
+        boolean atEnd() {
+            return peek().kind == Kind.END;
+        }
+
+        Token peek() {
+            return tokens.get(pos);
+        }
+
+        private Token next() {
+            Token t = tokens.get(pos);
+            if (t.kind != Kind.END) pos++;
+            return t;
+        }
+
+        IllegalArgumentException error(String message) {
+            return error(peek(), message);
+        }
+
+        private IllegalArgumentException error(Token at, String message) {
+            return new IllegalArgumentException(message + " at position " + at.offset);
+        }
+    }
+
+    // --- evaluation helpers (no allocation)
+
+    private static boolean contains(long[] sorted, long v) {
+        return Arrays.binarySearch(sorted, v) >= 0;
+    }
+
+    private static boolean containsFolded(String s, char[] needle) {
+        int last = s.length() - needle.length;
+        outer:
+        for (int i = 0; i <= last; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (TextFold.fold(s.charAt(i + j)) != needle[j]) continue outer;
+            }
+            return true;
+        }
+        return false;
+    }
+
+    // --- lexer
+
+    private enum Kind { WORD, NUMBER, STRING, SYMBOL, END }
+
+    private record Token(Kind kind, String text, int offset) {}
+
+    private static List<Token> tokenize(String s) {
+        List<Token> out = new ArrayList<>();
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            if (Character.isWhitespace(c)) { i++; continue; }
+            int start = i;
+            if (Character.isLetter(c) || c == '_') {
+                while (i < s.length() && (Character.isLetterOrDigit(s.charAt(i)) || s.charAt(i) == '_')) i++;
+                out.add(new Token(Kind.WORD, s.substring(start, i), start));
+            } else if (Character.isDigit(c) || c == '-' && i + 1 < s.length() && Character.isDigit(s.charAt(i + 1))) {
+                i++;
+                while (i < s.length() && (Character.isDigit(s.charAt(i)) || s.charAt(i) == '_')) i++;
+                out.add(new Token(Kind.NUMBER, s.substring(start, i), start));
+            } else if (c == '\'' || c == '"') {
+                StringBuilder text = new StringBuilder();
+                i++;
+                while (true) {
+                    if (i >= s.length()) throw new IllegalArgumentException("unterminated string at position " + start);
+                    char d = s.charAt(i++);
+                    if (d == c) break;
+                    if (d == '\\') {
+                        char e = i < s.length() ? s.charAt(i) : 0;
+                        if (e != '\'' && e != '"' && e != '\\') {
+                            throw new IllegalArgumentException("invalid escape in string at position " + (i - 1)
+                                    + ", only \\' \\\" and \\\\ are allowed");
+                        }
+                        d = e;
+                        i++;
+                    }
+                    text.append(d);
+                }
+                out.add(new Token(Kind.STRING, text.toString(), start));
+            } else {
+                String two = i + 1 < s.length() ? s.substring(i, i + 2) : "";
+                String op = switch (two) {
+                    case "==", "!=", "<>", "<=", ">=", "&&", "||" -> two;
+                    default -> "=<>!(),".indexOf(c) >= 0 ? String.valueOf(c) : null;
+                };
+                if (op == null) throw new IllegalArgumentException("unexpected '" + c + "' at position " + start);
+                out.add(new Token(Kind.SYMBOL, op, start));
+                i += op.length();
+            }
+        }
+        out.add(new Token(Kind.END, "", s.length()));
+        return out;
+    }
+}
@@ -0,0 +1,130 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+import com.bank.fraud.service.MetricsService;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluates the candidate policy on the events the live policy just evaluated and records how the
+ * results differ, per rule and for credit blocks. Nothing is written besides metrics and a sampled
+ * diff log (logger "SHADOW"): no alerts, cases or blocks.
+ * <p>
+ * Runs on its own small pool with a bounded queue; when the queue is full the work is dropped
+ * (policy_shadow_dropped_total) rather than slowing down the consumer. Velocity rules are not
+ * shadowed, they would have to update the live Redis windows.
+ */
+@Component
+public class ShadowPolicyEvaluator {
+
+    private static final Logger diffLog = LoggerFactory.getLogger("SHADOW");
+
+    private final PolicyEngine policyEngine;
+    private final MetricsService metrics;
+    private final double sampleRate;
+    private final ThreadPoolExecutor executor;
+
+    public ShadowPolicyEvaluator(
+            PolicyEngine policyEngine,
+            MetricsService metrics,
+            @Value("${app.policy.shadow.threads}") int threads,
+            @Value("${app.policy.shadow.queueCapacity}") int queueCapacity,
+            @Value("${app.policy.shadow.diffLogSampleRate}") double sampleRate
+    ) {
+        this.policyEngine = policyEngine;
+        this.metrics = metrics;
+        this.sampleRate = sampleRate;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().daemon().name("policy-shadow-", 0).factory(),
+                (job, ex) -> metrics.incShadowDropped(((Job) job).events.size()));
+        metrics.gauge("policy_shadow_queue_size", "Shadow evaluation jobs waiting", () -> executor.getQueue().size());
+    }
+
+    /**
+     * @param live the live policy's matches for ev (before rule whitelisting); copied, so the caller may modify it
+     */
+    public void submit(TransactionEvent ev, List<PolicyEngine.MatchedRule> live) {
+        if (policyEngine.candidate() == null) return;
+        executor.execute(new Job(List.of(ev), List.of(List.copyOf(live))));
+    }
+
+    /**
+     * Batch variant, aligned lists; one queued job for the whole batch.
+     */
+    public void submitAll(List<TransactionEvent> events, List<List<PolicyEngine.MatchedRule>> live) {
+        if (policyEngine.candidate() == null || events.isEmpty()) return;
+        List<List<PolicyEngine.MatchedRule>> copy = new ArrayList<>(live.size());
+        for (List<PolicyEngine.MatchedRule> h : live) copy.add(List.copyOf(h));
+        executor.execute(new Job(List.copyOf(events), copy));
+    }
+
+    private void compare(TransactionEvent ev, List<PolicyEngine.MatchedRule> live, CompiledPolicy candidate) {
+        List<PolicyEngine.MatchedRule> shadow = candidate.evaluate(ev);
+
+        List<String> added = new ArrayList<>(0);
+        List<String> removed = new ArrayList<>(0);
+        for (PolicyEngine.MatchedRule m : shadow) {
+            if (!containsRule(live, m.id())) added.add(m.id());
+        }
+        for (PolicyEngine.MatchedRule m : live) {
+            if (!containsRule(shadow, m.id())) removed.add(m.id());
+        }
+        added.forEach(id -> metrics.incShadowRuleDiff(id, "added"));
+        removed.forEach(id -> metrics.incShadowRuleDiff(id, "removed"));
+
+        boolean liveBlocks = blocks(live);
+        boolean shadowBlocks = blocks(shadow);
+        if (shadowBlocks != liveBlocks) metrics.incShadowBlockDiff(shadowBlocks ? "added" : "removed");
+
+        if ((!added.isEmpty() || !removed.isEmpty() || shadowBlocks != liveBlocks)
+                && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            diffLog.info("eventId={} customerNo={} live={} candidate={} added={} removed={} block={}->{}",
+                    ev.eventId(), ev.customerNo(), policyEngine.info().version(),
+                    candidate.version(), added, removed, liveBlocks, shadowBlocks);
+        }
+    }
+
+    private static boolean containsRule(List<PolicyEngine.MatchedRule> hits, String id) {
+        for (PolicyEngine.MatchedRule m : hits) if (m.id().equals(id)) return true;
+        return false;
+    }
+
+    private static boolean blocks(List<PolicyEngine.MatchedRule> hits) {
+        for (PolicyEngine.MatchedRule m : hits) if ("BLOCK_CREDIT".equalsIgnoreCase(m.action())) return true;
+        return false;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private final class Job implements Runnable {
+        private final List<TransactionEvent> events;
+        private final List<List<PolicyEngine.MatchedRule>> live;
+
+        Job(List<TransactionEvent> events, List<List<PolicyEngine.MatchedRule>> live) {
+            this.events = events;
+            this.live = live;
+        }
+
+        @Override
+        public void run() {
+            CompiledPolicy candidate = policyEngine.candidate();
+            if (candidate == null) return;
+            for (int i = 0; i < events.size(); i++) compare(events.get(i), live.get(i), candidate);
+            metrics.incShadowEvaluated(events.size());
+        }
+    }
+}
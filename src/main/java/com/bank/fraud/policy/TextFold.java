@@ -0,0 +1,24 @@
+package com.bank.fraud.policy;
+
+/**
+ * Case folding for keyword matching that is safe for Turkish text: I, İ (dotted capital),
+ * ı (dotless small) and i all fold to 'i', so "BAHİS", "BAHIS" and "bahis" match the same keyword.
+ * Per character and allocation free, unlike String.toLowerCase (which is locale dependent and
+ * turns 'İ' into two chars under the root locale).
+ */
+public final class TextFold {
+
+    private TextFold() {}
+
+    public static char fold(char c) {
+        if (c < 0x80) return (c >= 'A' && c <= 'Z') ? (char) (c + 32) : c;
+        if (c == 'İ' || c == 'ı') return 'i';
+        return Character.toLowerCase(c);
+    }
+
+    public static String fold(String s) {
+        StringBuilder b = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) b.append(fold(s.charAt(i)));
+        return b.toString();
+    }
+}
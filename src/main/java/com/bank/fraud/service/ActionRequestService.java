@@ -3,9 +3,12 @@ package com.bank.fraud.service;
 import com.bank.fraud.domain.ActionRequest;
 import com.bank.fraud.domain.CaseEvent;
 import com.bank.fraud.domain.CustomerRiskState;
+import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.function.Consumer;
+
 import static com.bank.fraud.service.Repositories.*;
 
 @Service
@@ -15,18 +18,21 @@ public class ActionRequestService {
     private final CaseEventRepo eventRepo;
     private final AuditService audit;
     private final ActionService actionService;
-    private final FraudCaseRepo caseRepo;
+    private final OpenCaseRegistry openCases;
+    private final EntityManager em;
 
     public ActionRequestService(ActionRequestRepo reqRepo,
                                 CaseEventRepo eventRepo,
                                 AuditService audit,
                                 ActionService actionService,
-                                FraudCaseRepo caseRepo) {
+                                OpenCaseRegistry openCases,
+                                EntityManager em) {
         this.reqRepo = reqRepo;
         this.eventRepo = eventRepo;
         this.audit = audit;
         this.actionService = actionService;
-        this.caseRepo = caseRepo;
+        this.openCases = openCases;
+        this.em = em;
     }
 
     /**
@@ -83,14 +89,15 @@ public class ActionRequestService {
         }
 
         // Execute as "system"
-        CustomerRiskState result;
+        // an already blocked (or not blocked) customer is a no-op, the request still counts as executed
         if ("BLOCK_CREDIT".equalsIgnoreCase(r.getActionType())) {
-            result = actionService.blockCredit(r.getCustomerNo(), "Approved: " + safe(r.getReason()), "system");
+            actionService.blockCredit(r.getCustomerNo(), "Approved: " + safe(r.getReason()), "system");
         } else if ("UNBLOCK_CREDIT".equalsIgnoreCase(r.getActionType())) {
-            result = actionService.unblockCredit(r.getCustomerNo(), "system");
+            actionService.unblockCredit(r.getCustomerNo(), "system");
         } else {
             throw new IllegalArgumentException("Unknown actionType: " + r.getActionType());
         }
+        CustomerRiskState result = actionService.state(r.getCustomerNo());
 
         r.executed();
         reqRepo.save(r);
@@ -137,6 +144,28 @@ public class ActionRequestService {
         return r;
     }
 
+    /**
+     * Requests newest first, filtered like {@link #list}; from cursor on (see {@link Keyset}).
+     */
+    public Keyset.Page<ActionRequest> page(String status, String customerNo, String cursor, int limit) {
+        Keyset.Cursor c = Keyset.Cursor.parse(cursor, Keyset.NEWEST);
+        java.util.List<ActionRequest> rows = customerNo != null && !customerNo.isBlank()
+                ? reqRepo.pageByCustomerNo(customerNo, c.at(), c.id(), Keyset.fetchLimit(limit))
+                : reqRepo.pageByStatus(status != null && !status.isBlank() ? status : "PENDING",
+                        c.at(), c.id(), Keyset.fetchLimit(limit));
+        return Keyset.page(rows, limit, r -> new Keyset.Cursor(r.getRequestedAt(), r.getId()));
+    }
+
+    /**
+     * All matching requests in {@link #page} order, one row in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void forEach(String status, String customerNo, Consumer<ActionRequest> sink) {
+        forEachDetached(customerNo != null && !customerNo.isBlank()
+                ? reqRepo.streamByCustomerNo(customerNo)
+                : reqRepo.streamByStatus(status != null && !status.isBlank() ? status : "PENDING"), em, sink);
+    }
+
     public java.util.List<ActionRequest> list(String status, String customerNo) {
         if (customerNo != null && !customerNo.isBlank()) {
             return reqRepo.findTop200ByCustomerNoOrderByRequestedAtDesc(customerNo);
@@ -149,11 +178,7 @@ public class ActionRequestService {
 
     private Long resolveCaseId(String customerNo, Long caseId) {
         if (caseId != null) return caseId;
-        var open = caseRepo.findTop50ByCustomerNoOrderByOpenedAtDesc(customerNo).stream()
-                .filter(c -> "OPEN".equalsIgnoreCase(c.getStatus()) || "INVESTIGATING".equalsIgnoreCase(c.getStatus()))
-                .findFirst()
-                .orElse(null);
-        return open == null ? null : open.getId();
+        return openCases.activeCaseId(customerNo);
     }
 
     private String safe(String s) {
@@ -2,52 +2,87 @@
 
 import com.bank.fraud.domain.CaseEvent;
 import com.bank.fraud.domain.CustomerRiskState;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
 import static com.bank.fraud.service.Repositories.*;
 
 @Service
 public class ActionService {
 
+    // the row is written only when the block state actually changes; RETURNING tells whether it did
+    // and gives the new version. The row stays locked until commit, so the outbox row added after it
+    // takes its id in the customer's commit order.
+    private static final String BLOCK = """
+            INSERT INTO customer_risk_state (customer_no, credit_blocked, block_reason, updated_at, version)
+            VALUES (?, true, ?, ?, 1)
+            ON CONFLICT (customer_no) DO UPDATE
+              SET credit_blocked = true, block_reason = EXCLUDED.block_reason, updated_at = EXCLUDED.updated_at,
+                  version = coalesce(customer_risk_state.version, 0) + 1
+              WHERE NOT customer_risk_state.credit_blocked
+            RETURNING version""";
+    private static final String UNBLOCK = """
+            UPDATE customer_risk_state SET credit_blocked = false, block_reason = '', updated_at = ?,
+              version = coalesce(version, 0) + 1
+            WHERE customer_no = ? AND credit_blocked
+            RETURNING version""";
+
+    private final JdbcTemplate jdbc;
     private final CustomerRiskRepo riskRepo;
-    private final FraudCaseRepo caseRepo;
+    private final OpenCaseRegistry openCases;
+    private final CreditBlockRegistry creditBlocks;
+    private final OutboxService outbox;
     private final CaseEventRepo eventRepo;
     private final MetricsService metrics;
     private final AuditService audit;
 
-    public ActionService(CustomerRiskRepo riskRepo,
-                         FraudCaseRepo caseRepo,
+    public ActionService(JdbcTemplate jdbc,
+                         CustomerRiskRepo riskRepo,
+                         OpenCaseRegistry openCases,
+                         CreditBlockRegistry creditBlocks,
+                         OutboxService outbox,
                          CaseEventRepo eventRepo,
                          MetricsService metrics,
                          AuditService audit) {
+        this.jdbc = jdbc;
         this.riskRepo = riskRepo;
-        this.caseRepo = caseRepo;
+        this.openCases = openCases;
+        this.creditBlocks = creditBlocks;
+        this.outbox = outbox;
         this.eventRepo = eventRepo;
         this.metrics = metrics;
         this.audit = audit;
     }
 
+    /**
+     * Blocks credit unless the customer is already blocked: one upsert, no prior read. Metrics, audit,
+     * case event, the credit-block cache update and the fraud.actions message happen only on an
+     * actual transition.
+     * @return true if the customer was not blocked before
+     */
     @Transactional
-    public CustomerRiskState blockCredit(String customerNo, String reason, String actor) {
-        CustomerRiskState st = riskRepo.findById(customerNo).orElseGet(() -> new CustomerRiskState(customerNo));
-        st.blockCredit(reason);
-        riskRepo.save(st);
+    public boolean blockCredit(String customerNo, String reason, String actor) {
+        Instant now = Instant.now();
+        List<Long> version = jdbc.queryForList(BLOCK, Long.class, customerNo, reason, Timestamp.from(now));
+        if (version.isEmpty()) return false;
+        creditBlocks.changed(customerNo, true, reason, now);
+        outbox.creditBlockChanged(customerNo, true, reason, actor, now, version.get(0));
 
         // metrics: blocks
         metrics.incBlock(reason);
 
         audit.write(actor, "BLOCK_CREDIT", "CUSTOMER", customerNo, "{\"reason\":\""+escape(reason)+"\"}");
 
-        // attach to latest OPEN/INVESTIGATING case (if any)
-        var open = caseRepo.findTop50ByCustomerNoOrderByOpenedAtDesc(customerNo).stream()
-                .filter(c -> "OPEN".equalsIgnoreCase(c.getStatus()) || "INVESTIGATING".equalsIgnoreCase(c.getStatus()))
-                .findFirst()
-                .orElse(null);
-
-        if (open != null) {
+        // attach to the active OPEN/INVESTIGATING case (if any)
+        Long openCaseId = openCases.activeCaseId(customerNo);
+        if (openCaseId != null) {
             eventRepo.save(new CaseEvent(
-                    open.getId(),
+                    openCaseId,
                     "ACTION",
                     "BLOCK_CREDIT",
                     actor,
@@ -55,25 +90,27 @@ public class ActionService {
             ));
         }
 
-        return st;
+        return true;
     }
 
+    /**
+     * Lifts a credit block; no-op (no audit, no case event) if the customer is not blocked.
+     * @return true if the customer was blocked before
+     */
     @Transactional
-    public CustomerRiskState unblockCredit(String customerNo, String actor) {
-        CustomerRiskState st = riskRepo.findById(customerNo).orElseGet(() -> new CustomerRiskState(customerNo));
-        st.unblockCredit();
-        riskRepo.save(st);
+    public boolean unblockCredit(String customerNo, String actor) {
+        Instant now = Instant.now();
+        List<Long> version = jdbc.queryForList(UNBLOCK, Long.class, Timestamp.from(now), customerNo);
+        if (version.isEmpty()) return false;
+        creditBlocks.changed(customerNo, false, "", now);
+        outbox.creditBlockChanged(customerNo, false, "", actor, now, version.get(0));
 
         audit.write(actor, "UNBLOCK_CREDIT", "CUSTOMER", customerNo, "{}");
 
-        var open = caseRepo.findTop50ByCustomerNoOrderByOpenedAtDesc(customerNo).stream()
-                .filter(c -> "OPEN".equalsIgnoreCase(c.getStatus()) || "INVESTIGATING".equalsIgnoreCase(c.getStatus()))
-                .findFirst()
-                .orElse(null);
-
-        if (open != null) {
+        Long openCaseId = openCases.activeCaseId(customerNo);
+        if (openCaseId != null) {
             eventRepo.save(new CaseEvent(
-                    open.getId(),
+                    openCaseId,
                     "ACTION",
                     "UNBLOCK_CREDIT",
                     actor,
@@ -81,7 +118,11 @@ public class ActionService {
             ));
         }
 
-        return st;
+        return true;
+    }
+
+    public CustomerRiskState state(String customerNo) {
+        return riskRepo.findById(customerNo).orElseGet(() -> new CustomerRiskState(customerNo));
     }
 
     private String escape(String s){ return s == null ? "" : s.replace("\"","'"); }
@@ -0,0 +1,278 @@
+package com.bank.fraud.service;
+
+import com.bank.fraud.domain.CaseEvent;
+import com.bank.fraud.domain.FraudAlert;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static com.bank.fraud.service.Repositories.*;
+
+/**
+ * Folds repeated hits of one rule for one customer into a single alert. The first hit opens a
+ * window of app.alerts.aggregationWindowSeconds and is a normal alert (case, timeline, block);
+ * later hits inside the window only bump the window's counter and last-seen evidence in memory.
+ * When the window closes the alert row gets hit_count / last_seen_at / last_event_id, the case
+ * timeline one ALERT_AGGREGATED event, and the last event's transaction evidence is stored (the
+ * folded-in events in between are only counted). A window also closes as soon as its case leaves
+ * OPEN / INVESTIGATING (NOTIFY case_status_changed), so no hit is folded into a closed case.
+ * <p>
+ * {@link #join} and {@link #open} run inside the pipeline transaction and are undone if it rolls
+ * back (count and last-seen values), so a redelivered event is counted again, not lost.
+ * Windows live on this instance only: after a partition moves, the new owner starts a fresh window
+ * (one extra alert). Hits of a window not yet written back are lost on a crash; its alert is not.
+ */
+@Service
+public class AlertAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertAggregator.class);
+
+    private final FraudAlertRepo alertRepo;
+    private final CaseEventRepo eventRepo;
+    private final EvidenceStore evidenceStore;
+    private final MetricsService metrics;
+    private final OpenCaseRegistry openCases;
+    private final PgNotificationBus bus;
+    private final TransactionTemplate tx;
+    private final long windowMillis;
+
+    private final ConcurrentHashMap<Key, Window> windows = new ConcurrentHashMap<>();
+    // expired windows waiting to be written back
+    private final Queue<Window> closed = new ConcurrentLinkedQueue<>();
+
+    public AlertAggregator(
+            FraudAlertRepo alertRepo,
+            CaseEventRepo eventRepo,
+            EvidenceStore evidenceStore,
+            MetricsService metrics,
+            OpenCaseRegistry openCases,
+            PgNotificationBus bus,
+            PlatformTransactionManager txManager,
+            @Value("${app.alerts.aggregationWindowSeconds}") long windowSeconds
+    ) {
+        this.alertRepo = alertRepo;
+        this.eventRepo = eventRepo;
+        this.evidenceStore = evidenceStore;
+        this.metrics = metrics;
+        this.openCases = openCases;
+        this.bus = bus;
+        this.tx = new TransactionTemplate(txManager);
+        this.windowMillis = windowSeconds * 1000;
+        metrics.gauge("alert_aggregation_open_windows", "Open (customer, rule) alert aggregation windows", windows::size);
+    }
+
+    @PostConstruct
+    void start() {
+        // a status change of one of the customer's cases; all windows after a reconnect (missed changes)
+        bus.subscribe(OpenCaseRegistry.CHANNEL,
+                customerNo -> closeInactive(key -> key.customerNo().equals(customerNo)),
+                () -> closeInactive(key -> true));
+    }
+
+    /**
+     * Counts the hit into the open window of (customerNo, ruleId) and returns it,
+     * or returns null when there is none: the caller creates the alert and calls {@link #open}.
+     */
+    public Window join(String customerNo, String ruleId, String eventId, String detailsJson, String evidenceJson) {
+        if (windowMillis <= 0) return null;
+        long now = System.currentTimeMillis();
+        Window w = windows.get(new Key(customerNo, ruleId));
+        if (w == null) return null;
+        Hit hit = w.hit(now, eventId, detailsJson, evidenceJson);
+        if (hit == null) return null;
+        afterCompletion(committed -> {
+            if (committed) w.committed(hit); else w.rolledBack(hit);
+        });
+        metrics.incAlertAggregated(ruleId);
+        return w;
+    }
+
+    /**
+     * Starts the window of a freshly created (persisted, not necessarily flushed) alert.
+     */
+    public Window open(String customerNo, String ruleId, FraudAlert alert) {
+        long now = System.currentTimeMillis();
+        Window w = new Window(alert.getId(), alert.getCaseId(), ruleId, now, now + windowMillis);
+        if (windowMillis <= 0) return w;
+        Key key = new Key(customerNo, ruleId);
+        Window previous = windows.put(key, w);
+        if (previous != null) closed.add(previous); // expired but not yet picked up by flush()
+        afterCompletion(committed -> {
+            if (!committed) windows.remove(key, w);
+        });
+        return w;
+    }
+
+    /**
+     * Closes the windows (of the keys selected) whose case is no longer active; they are written
+     * back on the next flush.
+     */
+    private void closeInactive(Predicate<Key> select) {
+        Map<Key, Window> candidates = new HashMap<>();
+        windows.forEach((key, w) -> {
+            if (w.caseId != null && select.test(key)) candidates.put(key, w);
+        });
+        if (candidates.isEmpty()) return;
+        Set<Long> active = openCases.activeAmong(candidates.values().stream().map(w -> w.caseId).toList());
+        candidates.forEach((key, w) -> {
+            if (!active.contains(w.caseId) && w.close() && windows.remove(key, w)) closed.add(w);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${app.alerts.flushMillis}")
+    void flushExpired() {
+        flush(System.currentTimeMillis());
+    }
+
+    @PreDestroy
+    void flushAll() {
+        flush(Long.MAX_VALUE);
+    }
+
+    private void flush(long now) {
+        windows.forEach((key, w) -> {
+            if (now >= w.closesAt && w.close() && windows.remove(key, w)) closed.add(w);
+        });
+
+        Map<Long, Window> repeated = new HashMap<>();
+        for (Window w; (w = closed.poll()) != null; ) {
+            if (w.hits() > 1 && w.alertId != null) repeated.put(w.alertId, w);
+        }
+        if (repeated.isEmpty()) return;
+
+        try {
+            tx.executeWithoutResult(s -> {
+                List<CaseEvent> timeline = new ArrayList<>(repeated.size());
+                Map<String, String> evidence = new HashMap<>();
+                for (FraudAlert a : alertRepo.findAllById(repeated.keySet())) {
+                    Window w = repeated.get(a.getId());
+                    w.writeTo(a, evidence);
+                    if (w.caseId != null) timeline.add(w.timelineEvent());
+                }
+                evidenceStore.saveAll(evidence);
+                eventRepo.saveAll(timeline);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Writing back {} alert aggregation windows failed, retrying on the next flush", repeated.size(), e);
+            closed.addAll(repeated.values());
+        }
+    }
+
+    // outside a transaction the change counts as committed right away
+    private static void afterCompletion(Consumer<Boolean> done) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            done.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_UNKNOWN) done.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private record Key(String customerNo, String ruleId) {}
+
+    /**
+     * One folded-in event; seq orders the hits of a window.
+     */
+    private record Hit(long seq, long at, String eventId, String detailsJson, String evidenceJson) {}
+
+    /**
+     * One (customer, rule) window; mutated by the pipeline and closed by the flush, hence synchronized.
+     * <p>
+     * {@code last} is the newest hit not rolled back, {@code committed} the newest committed one: when
+     * the newest hit rolls back, the last-seen values fall back to the committed hit (a later hit of
+     * another transaction takes over again when it commits).
+     */
+    public static final class Window {
+        private final Long alertId;
+        private final Long caseId;
+        private final String ruleId;
+        private final long firstSeenAt;
+        private final long closesAt;
+
+        private int hits = 1;
+        private long seq;
+        private Hit last;
+        private Hit committed;
+        private boolean closed;
+
+        private Window(Long alertId, Long caseId, String ruleId, long firstSeenAt, long closesAt) {
+            this.alertId = alertId;
+            this.caseId = caseId;
+            this.ruleId = ruleId;
+            this.firstSeenAt = firstSeenAt;
+            this.closesAt = closesAt;
+            // the alert's own event: its evidence is stored with the alert
+            this.last = this.committed = new Hit(0, firstSeenAt, null, null, null);
+        }
+
+        /**
+         * @return the hit, or null if the window is closed or expired
+         */
+        private synchronized Hit hit(long now, String eventId, String detailsJson, String evidenceJson) {
+            if (closed || now >= closesAt) return null;
+            hits++;
+            last = new Hit(++seq, now, eventId, detailsJson, evidenceJson);
+            return last;
+        }
+
+        private synchronized void committed(Hit h) {
+            if (h.seq() > committed.seq()) committed = h;
+            if (h.seq() > last.seq()) last = h;
+        }
+
+        private synchronized void rolledBack(Hit h) {
+            hits--;
+            if (last == h) last = committed;
+        }
+
+        private synchronized boolean close() {
+            if (closed) return false;
+            closed = true;
+            return true;
+        }
+
+        private synchronized int hits() {
+            return hits;
+        }
+
+        // only the last folded-in event's evidence is kept, the others are counted
+        private synchronized void writeTo(FraudAlert a, Map<String, String> evidence) {
+            a.aggregate(hits, Instant.ofEpochMilli(last.at()), last.eventId());
+            if (last.eventId() != null && last.evidenceJson() != null) evidence.put(last.eventId(), last.evidenceJson());
+        }
+
+        private synchronized CaseEvent timelineEvent() {
+            return new CaseEvent(caseId, "ALERT", "ALERT_AGGREGATED", "system",
+                    "{\"alertId\":" + alertId + ",\"ruleId\":\"" + ruleId.replace("\"", "'") + "\",\"hits\":" + hits
+                            + ",\"firstSeenAt\":\"" + Instant.ofEpochMilli(firstSeenAt) + "\""
+                            + ",\"lastSeenAt\":\"" + Instant.ofEpochMilli(last.at()) + "\""
+                            + ",\"lastEventId\":\"" + (last.eventId() == null ? "" : last.eventId().replace("\"", "'")) + "\""
+                            + ",\"lastDetails\":" + (last.detailsJson() == null ? "null" : last.detailsJson()) + "}",
+                    last.eventId());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.bank.fraud.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded lock-free multi-producer / single-consumer queue (Vyukov's bounded queue with per-slot
+ * sequence numbers). Producers claim a slot with one CAS on the tail and publish it by advancing the
+ * slot's sequence; the single consumer reads published slots in order and hands them back.
+ */
+final class AuditRingBuffer<T> {
+
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head; // written by the consumer only
+
+    AuditRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        this.items = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    /**
+     * @return false if the buffer is full
+     */
+    boolean offer(T item) {
+        long t;
+        int slot;
+        while (true) {
+            t = tail.get();
+            slot = (int) (t & mask);
+            long diff = sequences.get(slot) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) break;
+            } else if (diff < 0) {
+                return false; // the consumer has not freed this slot yet
+            }
+            // else another producer claimed it first: retry with the new tail
+        }
+        items[slot] = item;
+        sequences.lazySet(slot, t + 1); // publish
+        return true;
+    }
+
+    /**
+     * Consumer only: hands up to max published items to sink, in order.
+     */
+    @SuppressWarnings("unchecked")
+    int drain(Consumer<T> sink, int max) {
+        long h = head;
+        int n = 0;
+        while (n < max) {
+            int slot = (int) (h & mask);
+            if (sequences.get(slot) != h + 1) break; // not published yet
+            T item = (T) items[slot];
+            items[slot] = null;
+            sequences.lazySet(slot, h + items.length); // free for the producers' next lap
+            h++;
+            n++;
+            sink.accept(item);
+        }
+        head = h;
+        return n;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+}
@@ -0,0 +1,287 @@
+package com.bank.fraud.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Append-only audit segment files, written through a memory mapping.
+ * <p>
+ * A segment (audit-&lt;first seq, 20 digits&gt;.log) is created at its full size and filled with lines
+ * {@code <sha256 hex> <record json>\n}; the unused rest stays zero, which is where readers stop.
+ * Each hash is SHA-256(previous record's hash || record json), the first record's previous hash being
+ * 32 zero bytes, so the chain runs across segments and any edit, removal or reordering shows up in
+ * {@link #verify}. On start the writer continues the chain from the last complete line (a torn line
+ * left by a crash is zeroed).
+ * <p>
+ * Not thread-safe for writing (one writer thread); reading and verifying work on the files and can
+ * run concurrently with it.
+ */
+public final class AuditSegments implements AutoCloseable {
+
+    private static final Pattern NAME = Pattern.compile("audit-(\\d{20})\\.log");
+    private static final int HASH_HEX = 64;
+    private static final byte[] SEQ_PREFIX = "{\"seq\":".getBytes(StandardCharsets.US_ASCII);
+    private static final HexFormat HEX = HexFormat.of();
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final MessageDigest sha = sha256();
+
+    private FileChannel channel;
+    private MappedByteBuffer buf;
+    private long nextSeq = 1;
+    private byte[] lastHash = new byte[32];
+
+    AuditSegments(Path dir, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        resume();
+    }
+
+    long nextSeq() {
+        return nextSeq;
+    }
+
+    String lastHash() {
+        return HEX.formatHex(lastHash);
+    }
+
+    /**
+     * @param record JSON of the record, starting with {"seq":nextSeq()
+     */
+    void append(byte[] record) throws IOException {
+        sha.update(lastHash);
+        byte[] hash = sha.digest(record);
+        int len = HASH_HEX + 1 + record.length + 1;
+        if (buf == null || buf.remaining() < len) rotate(len);
+        buf.put(HEX.formatHex(hash).getBytes(StandardCharsets.US_ASCII));
+        buf.put((byte) ' ');
+        buf.put(record);
+        buf.put((byte) '\n');
+        lastHash = hash;
+        nextSeq++;
+    }
+
+    /**
+     * msync of the current segment.
+     */
+    void force() {
+        if (buf != null) buf.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (channel != null) channel.close();
+        channel = null;
+        buf = null;
+    }
+
+    /**
+     * Starts the segment of nextSeq. If it cannot be mapped the new file is closed and deleted again,
+     * so the writer's retry creates it afresh instead of failing on CREATE_NEW for good.
+     */
+    private void rotate(int minBytes) throws IOException {
+        close();
+        Path next = dir.resolve(name(nextSeq));
+        FileChannel ch = FileChannel.open(next, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, minBytes));
+        } catch (Throwable t) {
+            try {
+                ch.close();
+                Files.deleteIfExists(next);
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+        channel = ch;
+    }
+
+    private void resume() throws IOException {
+        List<Path> segments = segments(dir);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            Path seg = segments.get(i);
+            long[] end = new long[]{0};
+            byte[][] lastLine = new byte[1][];
+            forEachLine(seg, (line, len, endOffset) -> {
+                lastLine[0] = Arrays.copyOf(line, len);
+                end[0] = endOffset;
+                return true;
+            });
+            if (lastLine[0] == null) {
+                // created right before a crash, holds nothing
+                if (i == segments.size() - 1) Files.delete(seg);
+                continue;
+            }
+            lastHash = HEX.parseHex(new String(lastLine[0], 0, HASH_HEX, StandardCharsets.US_ASCII));
+            nextSeq = seq(lastLine[0], HASH_HEX + 1, lastLine[0].length) + 1;
+            if (i == segments.size() - 1) reopen(seg, (int) end[0]);
+            return;
+        }
+    }
+
+    private void reopen(Path seg, int position) throws IOException {
+        channel = FileChannel.open(seg, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buf = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        for (int p = position; p < buf.limit() && buf.get(p) != 0; p++) buf.put(p, (byte) 0); // torn line
+        buf.position(position);
+    }
+
+    // --- reading
+
+    interface LineVisitor {
+        /**
+         * @param line      buffer holding the line (without '\n') in [0, len)
+         * @param endOffset file offset just after the line's '\n'
+         * @return false to stop
+         */
+        boolean visit(byte[] line, int len, long endOffset) throws IOException;
+    }
+
+    /**
+     * Complete lines of a segment up to the zero fill; a trailing line without '\n' is being written
+     * (or was torn) and is skipped.
+     */
+    static void forEachLine(Path segment, LineVisitor visitor) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(segment), 1 << 16)) {
+            byte[] line = new byte[4096];
+            int len = 0;
+            long offset = 0;
+            int b;
+            while ((b = in.read()) > 0) {
+                offset++;
+                if (b == '\n') {
+                    if (!visitor.visit(line, len, offset)) return;
+                    len = 0;
+                    continue;
+                }
+                if (len == line.length) line = Arrays.copyOf(line, len * 2);
+                line[len++] = (byte) b;
+            }
+        }
+    }
+
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> NAME.matcher(p.getFileName().toString()).matches()).sorted().toList();
+        }
+    }
+
+    static long firstSeq(Path segment) {
+        Matcher m = NAME.matcher(segment.getFileName().toString());
+        return m.matches() ? Long.parseLong(m.group(1)) : -1;
+    }
+
+    /**
+     * Records with seq &gt;= fromSeq accepted by filter, oldest first, at most limit; starts at the
+     * segment holding fromSeq.
+     */
+    static List<Line> read(Path dir, long fromSeq, int limit, Predicate<String> filter) throws IOException {
+        List<Path> segments = segments(dir);
+        int start = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (firstSeq(segments.get(i)) <= fromSeq) start = i;
+        }
+        List<Line> out = new ArrayList<>();
+        for (int i = start; i < segments.size() && out.size() < limit; i++) {
+            forEachLine(segments.get(i), (line, len, end) -> {
+                if (len <= HASH_HEX + 1 || seq(line, HASH_HEX + 1, len) < fromSeq) return true;
+                String record = new String(line, HASH_HEX + 1, len - HASH_HEX - 1, StandardCharsets.UTF_8);
+                if (filter.test(record)) {
+                    out.add(new Line(new String(line, 0, HASH_HEX, StandardCharsets.US_ASCII), record));
+                }
+                return out.size() < limit;
+            });
+        }
+        return out;
+    }
+
+    public record Line(String hash, String record) {}
+
+    /**
+     * Recomputes the chain over every segment.
+     */
+    static Verification verify(Path dir) throws IOException {
+        MessageDigest sha = sha256();
+        byte[][] prev = {new byte[32]};
+        long[] expected = {-1};
+        long[] records = {0};
+        String[] error = {null};
+        List<Path> segments = segments(dir);
+        for (Path seg : segments) {
+            long[] lineNo = {0};
+            forEachLine(seg, (line, len, end) -> {
+                lineNo[0]++;
+                if (len <= HASH_HEX + 1 || line[HASH_HEX] != ' ') {
+                    error[0] = seg.getFileName() + " line " + lineNo[0] + ": malformed";
+                    return false;
+                }
+                sha.update(prev[0]);
+                sha.update(line, HASH_HEX + 1, len - HASH_HEX - 1);
+                byte[] hash = sha.digest();
+                if (!HEX.formatHex(hash).equals(new String(line, 0, HASH_HEX, StandardCharsets.US_ASCII))) {
+                    error[0] = seg.getFileName() + " line " + lineNo[0] + ": hash mismatch";
+                    return false;
+                }
+                long seq = seq(line, HASH_HEX + 1, len);
+                if (expected[0] >= 0 && seq != expected[0]) {
+                    error[0] = seg.getFileName() + " line " + lineNo[0] + ": seq " + seq + ", expected " + expected[0];
+                    return false;
+                }
+                prev[0] = hash;
+                expected[0] = seq + 1;
+                records[0]++;
+                return true;
+            });
+            if (error[0] != null) break;
+        }
+        return new Verification(error[0] == null ? "OK" : "BROKEN", segments.size(), records[0],
+                expected[0] - 1, HEX.formatHex(prev[0]), error[0]);
+    }
+
+    public record Verification(String status, int segments, long records, long lastSeq, String lastHash, String error) {}
+
+    // --- helpers
+
+    // records start with {"seq":<digits>
+    private static long seq(byte[] line, int from, int to) {
+        int p = from + SEQ_PREFIX.length;
+        if (to - from < SEQ_PREFIX.length || !Arrays.equals(line, from, p, SEQ_PREFIX, 0, SEQ_PREFIX.length)) return -1;
+        long v = 0;
+        for (; p < to && line[p] >= '0' && line[p] <= '9'; p++) v = v * 10 + (line[p] - '0');
+        return v;
+    }
+
+    private static String name(long firstSeq) {
+        return String.format("audit-%020d.log", firstSeq);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has SHA-256
+        }
+    }
+}
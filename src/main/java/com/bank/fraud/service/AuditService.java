@@ -1,14 +1,201 @@
 ﻿package com.bank.fraud.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Tamper-evident audit trail.
+ * <p>
+ * {@link #write} only enqueues into a lock-free ring buffer; the "audit-writer" thread drains it in
+ * batches into hash-chained, memory-mapped segment files under app.audit.dir (see
+ * {@link AuditSegments}) and repeats each record on the "AUDIT" logger. Records are never dropped:
+ * when the ring is full the caller waits for room (audit_ring_full_total), when a write fails the
+ * batch is retried.
+ * <p>
+ * app.audit.fsync: batch = msync after every drained batch, interval = at most every
+ * fsyncIntervalMillis, none = left to the OS (a crash of the process loses nothing, a crash of the
+ * host may lose the tail).
+ */
 @Service
 public class AuditService {
     private static final Logger log = LoggerFactory.getLogger("AUDIT");
+    private static final Logger writerLog = LoggerFactory.getLogger(AuditService.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final Path dir;
+    private final AuditSegments segments;
+    private final AuditRingBuffer<Entry> ring;
+    private final int batchSize;
+    private final String fsync;
+    private final long fsyncIntervalMillis;
+    private final Counter written;
+    private final Counter ringFull;
+    private final Thread writer;
+
+    private volatile boolean running = true;
+    private volatile long lastSeq;
+    private long lastForceMillis;
+    private boolean unforced;
+
+    public AuditService(
+            MetricsService metrics,
+            @Value("${app.audit.dir}") String dir,
+            @Value("${app.audit.segmentBytes}") int segmentBytes,
+            @Value("${app.audit.ringCapacity}") int ringCapacity,
+            @Value("${app.audit.batchSize}") int batchSize,
+            @Value("${app.audit.fsync}") String fsync,
+            @Value("${app.audit.fsyncIntervalMillis}") long fsyncIntervalMillis
+    ) {
+        if (!List.of("batch", "interval", "none").contains(fsync)) {
+            throw new IllegalArgumentException("app.audit.fsync must be batch, interval or none: " + fsync);
+        }
+        this.dir = Path.of(dir);
+        try {
+            this.segments = new AuditSegments(this.dir, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open audit segments in " + dir, e);
+        }
+        this.ring = new AuditRingBuffer<>(ringCapacity);
+        this.batchSize = batchSize;
+        this.fsync = fsync;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.lastSeq = segments.nextSeq() - 1;
+        this.written = metrics.counter("audit_records_written_total", "Audit records appended to the segment files");
+        this.ringFull = metrics.counter("audit_ring_full_total", "Audit writes that had to wait for room in the ring buffer");
+        metrics.gauge("audit_ring_size", "Audit records waiting to be written", ring::size);
+        metrics.gauge("audit_last_seq", "Sequence number of the last audit record written", () -> lastSeq);
+        writerLog.info("Audit log in {} continues at seq {}", dir, lastSeq + 1);
+        this.writer = Thread.ofPlatform().daemon().name("audit-writer").start(this::writeLoop);
+    }
 
     public void write(String actor, String action, String resource, String resourceId, String detailsJson) {
-        log.info("actor={} action={} resource={} resourceId={} details={}", actor, action, resource, resourceId, detailsJson);
+        Entry e = new Entry(Instant.now(), actor, action, resource, resourceId, detailsJson);
+        boolean waited = false;
+        while (!ring.offer(e)) {
+            if (!running) {
+                logLine(e, -1); // shutting down: the writer is gone, keep at least the log line
+                return;
+            }
+            if (!waited) {
+                ringFull.increment();
+                waited = true;
+            }
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
     }
+
+    /**
+     * Recomputes the hash chain over all segments.
+     */
+    public AuditSegments.Verification verify() throws IOException {
+        return AuditSegments.verify(dir);
+    }
+
+    /**
+     * Up to limit records from fromSeq on, optionally only those of one action.
+     */
+    public List<AuditSegments.Line> records(long fromSeq, int limit, String action) throws IOException {
+        return AuditSegments.read(dir, fromSeq, limit, record -> action == null || action.equals(actionOf(record)));
+    }
+
+    private String actionOf(String record) {
+        try {
+            return om.readTree(record).path("action").asText(null);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private void writeLoop() {
+        ArrayDeque<Entry> pending = new ArrayDeque<>(batchSize);
+        while (running || ring.size() > 0 || !pending.isEmpty()) {
+            if (pending.isEmpty() && ring.drain(pending::add, batchSize) == 0) {
+                if (unforced && System.currentTimeMillis() - lastForceMillis >= fsyncIntervalMillis) force();
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                appendAll(pending);
+            } catch (IOException | RuntimeException e) {
+                // the failed entry is still at the head of pending and is retried
+                writerLog.error("Writing audit records failed, {} pending, retrying in 1s", pending.size(), e);
+                if (!running) return;
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    private void appendAll(ArrayDeque<Entry> pending) throws IOException {
+        int n = 0;
+        for (Entry e; (e = pending.peek()) != null; pending.poll()) {
+            long seq = segments.nextSeq();
+            segments.append(om.writeValueAsBytes(e.toRecord(seq)));
+            lastSeq = seq;
+            logLine(e, seq);
+            n++;
+        }
+        written.increment(n);
+        switch (fsync) {
+            case "batch" -> force();
+            case "interval" -> {
+                unforced = true;
+                if (System.currentTimeMillis() - lastForceMillis >= fsyncIntervalMillis) force();
+            }
+            default -> { }
+        }
+    }
+
+    private void force() {
+        segments.force();
+        lastForceMillis = System.currentTimeMillis();
+        unforced = false;
+    }
+
+    private static void logLine(Entry e, long seq) {
+        log.info("seq={} actor={} action={} resource={} resourceId={} details={}",
+                seq, e.actor(), e.action(), e.resource(), e.resourceId(), e.details());
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException, IOException {
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        if (writer.isAlive()) {
+            writerLog.error("Audit writer did not finish, {} records not written", ring.size());
+            return;
+        }
+        ring.drain(e -> logLine(e, -1), Integer.MAX_VALUE); // enqueued while the writer was finishing
+        segments.close();
+    }
+
+    private record Entry(Instant ts, String actor, String action, String resource, String resourceId, String details) {
+        // details stay a string: callers build them by concatenation and they are not always valid JSON
+        AuditRecord toRecord(long seq) {
+            return new AuditRecord(seq, ts.toString(), actor, action, resource, resourceId, details);
+        }
+    }
+
+    /**
+     * Stored form; seq must stay the first component (AuditSegments reads it from the line start).
+     */
+    record AuditRecord(long seq, String ts, String actor, String action, String resource, String resourceId,
+                       String details) {}
 }
@@ -3,10 +3,12 @@
 import com.bank.fraud.domain.CaseEvent;
 import com.bank.fraud.domain.FraudAlert;
 import com.bank.fraud.domain.FraudCase;
+import jakarta.persistence.EntityManager;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.List;
+import java.util.function.Consumer;
 
 import static com.bank.fraud.service.Repositories.*;
 
@@ -16,19 +18,28 @@ public class CaseService {
     private final FraudAlertRepo alertRepo;
     private final FraudCaseRepo caseRepo;
     private final CaseEventRepo eventRepo;
+    private final OpenCaseRegistry openCases;
+    private final OutboxService outbox;
     private final MetricsService metrics;
     private final AuditService audit;
+    private final EntityManager em;
 
     public CaseService(FraudAlertRepo alertRepo,
                        FraudCaseRepo caseRepo,
                        CaseEventRepo eventRepo,
+                       OpenCaseRegistry openCases,
+                       OutboxService outbox,
                        MetricsService metrics,
-                       AuditService audit) {
+                       AuditService audit,
+                       EntityManager em) {
         this.alertRepo = alertRepo;
         this.caseRepo = caseRepo;
         this.eventRepo = eventRepo;
+        this.openCases = openCases;
+        this.outbox = outbox;
         this.metrics = metrics;
         this.audit = audit;
+        this.em = em;
     }
 
     @Transactional
@@ -40,49 +51,44 @@ public class CaseService {
 
     /**
      * Ensure there is an OPEN/INVESTIGATING case. Reuse if possible, else create.
+     * Returns the case id (see {@link OpenCaseRegistry}).
      */
     @Transactional
-    public FraudCase openOrReuseOpenCase(String customerNo, String priority, String summary, String evidenceJson, String actor) {
-        Optional<FraudCase> existingOpen = caseRepo.findTop50ByCustomerNoOrderByOpenedAtDesc(customerNo)
-                .stream()
-                .filter(c -> "OPEN".equalsIgnoreCase(c.getStatus()) || "INVESTIGATING".equalsIgnoreCase(c.getStatus()))
-                .findFirst();
-
-        FraudCase c;
-        if (existingOpen.isPresent()) {
-            c = existingOpen.get();
-        } else {
-            c = new FraudCase(customerNo, "OPEN", priority, summary, evidenceJson);
-            caseRepo.save(c);
-
+    public Long openOrReuseOpenCase(String customerNo, String priority, String summary, String evidenceEventId, String actor) {
+        OpenCaseRegistry.Opened c = openCases.openOrGet(customerNo, priority, summary, evidenceEventId);
+        if (c.created()) {
             // metrics: case opened
             metrics.incCaseOpened(priority);
 
-            audit.write(actor, "OPEN_CASE", "CASE", String.valueOf(c.getId()), "{\"customerNo\":\""+customerNo+"\"}");
+            audit.write(actor, "OPEN_CASE", "CASE", String.valueOf(c.caseId()), "{\"customerNo\":\""+customerNo+"\"}");
             eventRepo.save(new CaseEvent(
-                    c.getId(),
+                    c.caseId(),
                     "STATUS",
                     "CASE_OPENED",
                     actor,
-                    "{\"priority\":\""+priority+"\",\"summary\":\""+safe(summary)+"\"}"
+                    "{\"priority\":\""+priority+"\",\"summary\":\""+safe(summary)+"\"}",
+                    evidenceEventId
             ));
         }
-        return c;
+        return c.caseId();
     }
 
+    /**
+     * Alert already linked to its case plus its ALERT timeline event. Both are only persisted here;
+     * the INSERTs go out with the surrounding transaction's flush, batched with every other alert of
+     * that transaction (one per Kafka batch in batch mode), and caseId is part of the INSERT.
+     * The timeline event references the alert and the evidence (eventId) instead of copying details.
+     * The fraud.alerts message is an outbox row of the same transaction.
+     */
     @Transactional
-    public FraudAlert attachAlertToCase(Long caseId, FraudAlert alert, String actor) {
-        alert.setCaseId(caseId);
-        alertRepo.save(alert);
-
-        eventRepo.save(new CaseEvent(
-                caseId,
-                "ALERT",
-                alert.getRuleId(),
-                actor,
-                alert.getDetailsJson()
-        ));
-        return alert;
+    public FraudAlert recordAlert(Long caseId, String eventId, String customerNo, String type, String severity,
+                                  String ruleId, String detailsJson, String actor) {
+        FraudAlert a = new FraudAlert(eventId, customerNo, type, severity, ruleId, detailsJson);
+        a.setCaseId(caseId);
+        alertRepo.save(a);
+        eventRepo.save(new CaseEvent(caseId, "ALERT", ruleId, actor, "{\"alertId\":" + a.getId() + "}", eventId));
+        outbox.alertRaised(a);
+        return a;
     }
 
     @Transactional
@@ -91,6 +97,7 @@ public class CaseService {
         String old = c.getStatus();
         c.setStatus(status);
         caseRepo.save(c);
+        openCases.statusChanged(c.getCustomerNo());
 
         audit.write(actor, "UPDATE_CASE_STATUS", "CASE", String.valueOf(caseId), "{\"status\":\""+status+"\"}");
 
@@ -116,6 +123,70 @@ public class CaseService {
         return eventRepo.findTop500ByCaseIdOrderByCreatedAtAsc(caseId);
     }
 
+    /**
+     * Timeline oldest first, from cursor on (see {@link Keyset}).
+     */
+    public Keyset.Page<CaseEvent> timelinePage(Long caseId, String cursor, int limit) {
+        Keyset.Cursor c = Keyset.Cursor.parse(cursor, Keyset.OLDEST);
+        return Keyset.page(eventRepo.pageByCaseId(caseId, c.at(), c.id(), Keyset.fetchLimit(limit)), limit,
+                e -> new Keyset.Cursor(e.getCreatedAt(), e.getId()));
+    }
+
+    /**
+     * Whole timeline in {@link #timelinePage} order, one row in memory at a time.
+     */
+    @Transactional(readOnly = true)
+    public void forEachTimelineEvent(Long caseId, Consumer<CaseEvent> sink) {
+        forEachDetached(eventRepo.streamByCaseId(caseId), em, sink);
+    }
+
+    /**
+     * Cases newest first, filtered like the list endpoint: customerNo, else status, else OPEN.
+     */
+    public Keyset.Page<FraudCase> casePage(String status, String customerNo, String cursor, int limit) {
+        Keyset.Cursor c = Keyset.Cursor.parse(cursor, Keyset.NEWEST);
+        List<FraudCase> rows = customerNo != null
+                ? caseRepo.pageByCustomerNo(customerNo, c.at(), c.id(), Keyset.fetchLimit(limit))
+                : caseRepo.pageByStatus(status != null ? status : "OPEN", c.at(), c.id(), Keyset.fetchLimit(limit));
+        return Keyset.page(rows, limit, x -> new Keyset.Cursor(x.getOpenedAt(), x.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachCase(String status, String customerNo, Consumer<FraudCase> sink) {
+        forEachDetached(customerNo != null
+                ? caseRepo.streamByCustomerNo(customerNo)
+                : caseRepo.streamByStatus(status != null ? status : "OPEN"), em, sink);
+    }
+
+    /**
+     * Alerts newest first, of one case or else of one customer.
+     */
+    public Keyset.Page<FraudAlert> alertPage(Long caseId, String customerNo, String cursor, int limit) {
+        Keyset.Cursor c = Keyset.Cursor.parse(cursor, Keyset.NEWEST);
+        List<FraudAlert> rows = caseId != null
+                ? alertRepo.pageByCaseId(caseId, c.at(), c.id(), Keyset.fetchLimit(limit))
+                : alertRepo.pageByCustomerNo(requireAlertFilter(caseId, customerNo), c.at(), c.id(), Keyset.fetchLimit(limit));
+        return Keyset.page(rows, limit, a -> new Keyset.Cursor(a.getCreatedAt(), a.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public void forEachAlert(Long caseId, String customerNo, Consumer<FraudAlert> sink) {
+        forEachDetached(caseId != null
+                ? alertRepo.streamByCaseId(caseId)
+                : alertRepo.streamByCustomerNo(requireAlertFilter(caseId, customerNo)), em, sink);
+    }
+
+    /**
+     * Alerts are listed per case or per customer: one of the two is required.
+     * @return customerNo
+     */
+    public static String requireAlertFilter(Long caseId, String customerNo) {
+        if (caseId == null && (customerNo == null || customerNo.isBlank())) {
+            throw new IllegalArgumentException("caseId or customerNo is required");
+        }
+        return customerNo;
+    }
+
     private String safe(String s) {
         return s == null ? "" : s.replace("\"", "'");
     }
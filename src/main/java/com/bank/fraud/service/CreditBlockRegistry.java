@@ -0,0 +1,112 @@
+package com.bank.fraud.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Credit-block status of every customer, answered from memory: the map holds the blocked customers
+ * only, absent means not blocked. The database is never read on a lookup.
+ * <p>
+ * Loaded at startup and again after every reconnect of the LISTEN connection. ActionService sends
+ * each block / unblock on NOTIFY credit_block_changed in its own transaction; Postgres delivers
+ * notifications in commit order, so every instance (this one included) applies them in that order.
+ * credit_block_change_lag_seconds is the time from the change to it being applied here.
+ */
+@Service
+public class CreditBlockRegistry {
+
+    static final String CHANNEL = "credit_block_changed";
+    private static final int MAX_REASON = 1000; // NOTIFY payloads are limited to 8000 bytes
+
+    private static final Logger log = LoggerFactory.getLogger(CreditBlockRegistry.class);
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final JdbcTemplate jdbc;
+    private final PgNotificationBus bus;
+    private final MetricsService metrics;
+    private final Counter blockedLookups;
+    private final Counter clearLookups;
+
+    // replaced wholesale on reload, patched by notifications (listener thread only)
+    private volatile ConcurrentHashMap<String, Block> blocked = new ConcurrentHashMap<>();
+
+    public CreditBlockRegistry(JdbcTemplate jdbc, PgNotificationBus bus, MetricsService metrics) {
+        this.jdbc = jdbc;
+        this.bus = bus;
+        this.metrics = metrics;
+        this.blockedLookups = metrics.counter("credit_block_lookups_total", "Credit-block status lookups", "result", "blocked");
+        this.clearLookups = metrics.counter("credit_block_lookups_total", "Credit-block status lookups", "result", "clear");
+    }
+
+    @PostConstruct
+    void start() {
+        reload();
+        // reloaded again once LISTEN is up, closing the gap since the load above
+        bus.subscribe(CHANNEL, this::onNotification, this::reload);
+        metrics.gauge("credit_block_cache_entries", "Credit-blocked customers held in memory", () -> blocked.size());
+    }
+
+    public Status status(String customerNo) {
+        Block b = blocked.get(customerNo);
+        if (b == null) {
+            clearLookups.increment();
+            return new Status(customerNo, false, null, null);
+        }
+        blockedLookups.increment();
+        return new Status(customerNo, true, b.reason(), Instant.ofEpochMilli(b.sinceMillis()));
+    }
+
+    /**
+     * Called in the transaction that changed the customer's state; applied everywhere after commit.
+     */
+    void changed(String customerNo, boolean creditBlocked, String reason, Instant updatedAt) {
+        if (reason != null && reason.length() > MAX_REASON) reason = reason.substring(0, MAX_REASON);
+        try {
+            bus.notify(CHANNEL, om.writeValueAsString(
+                    new Change(customerNo, creditBlocked, reason, updatedAt.toEpochMilli())));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void reload() {
+        ConcurrentHashMap<String, Block> next = new ConcurrentHashMap<>();
+        jdbc.query("SELECT customer_no, block_reason, updated_at FROM customer_risk_state WHERE credit_blocked", rs -> {
+            next.put(rs.getString(1), new Block(rs.getString(2), rs.getTimestamp(3).getTime()));
+        });
+        blocked = next;
+        log.info("Credit-block cache loaded: {} blocked customers", next.size());
+    }
+
+    private void onNotification(String payload) {
+        Change c;
+        try {
+            c = om.readValue(payload, Change.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed {} payload '{}'", CHANNEL, payload);
+            return;
+        }
+        if (c.blocked()) {
+            blocked.put(c.customerNo(), new Block(c.reason(), c.updatedAtMillis()));
+        } else {
+            blocked.remove(c.customerNo());
+        }
+        metrics.recordCreditBlockLag(System.currentTimeMillis() - c.updatedAtMillis());
+    }
+
+    private record Block(String reason, long sinceMillis) {}
+
+    private record Change(String customerNo, boolean blocked, String reason, long updatedAtMillis) {}
+
+    public record Status(String customerNo, boolean blocked, String reason, Instant blockedAt) {}
+}
@@ -0,0 +1,62 @@
+package com.bank.fraud.service;
+
+import com.bank.fraud.domain.TransactionEvidence;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.bank.fraud.service.Repositories.*;
+
+/**
+ * transaction_evidence: one row per eventId instead of a copy of the transaction in every alert,
+ * case and timeline event. Written in one JDBC batch per pipeline transaction; read only when
+ * someone asks for it (GET /v1/evidence/{eventId}). A redelivered event keeps its first row.
+ */
+@Service
+public class EvidenceStore {
+
+    private static final String INSERT =
+            "INSERT INTO transaction_evidence (event_id, sha256, evidence_json, created_at) VALUES (?, ?, ?, ?) "
+                    + "ON CONFLICT (event_id) DO NOTHING";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionEvidenceRepo repo;
+
+    public EvidenceStore(JdbcTemplate jdbc, TransactionEvidenceRepo repo) {
+        this.jdbc = jdbc;
+        this.repo = repo;
+    }
+
+    /**
+     * @param evidenceByEventId eventId -> evidence JSON; runs on the caller's transaction
+     */
+    public void saveAll(Map<String, String> evidenceByEventId) {
+        if (evidenceByEventId.isEmpty()) return;
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(evidenceByEventId.size());
+        evidenceByEventId.forEach((eventId, json) -> rows.add(new Object[]{eventId, sha256(json), json, now}));
+        jdbc.batchUpdate(INSERT, rows);
+    }
+
+    public Optional<TransactionEvidence> find(String eventId) {
+        return repo.findById(eventId);
+    }
+
+    static String sha256(String json) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JRE has SHA-256
+        }
+    }
+}
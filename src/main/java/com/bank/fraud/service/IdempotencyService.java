@@ -0,0 +1,202 @@
+package com.bank.fraud.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.resps.Tuple;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Skips redelivered transaction events (rebalance / crash replays) by eventId.
+ * <p>
+ * Per scope (topic-partition) there is a Redis sorted set {@code idem:<scope>} of processed eventIds
+ * (score = processing time, trimmed by age and size) and an in-memory time-bucketed Bloom filter
+ * warmed from that set the first time the scope is seen on this instance:
+ * <ul>
+ *   <li>Bloom negative → new event, no Redis read</li>
+ *   <li>Bloom positive → confirmed against the seen-set (a miss is a false positive)</li>
+ * </ul>
+ * Events are marked after they were fully processed, so a crash before the mark replays them.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final JedisPool pool;
+    private final MetricsService metrics;
+    private final boolean enabled;
+    private final int ttlSeconds;
+    private final int buckets;
+    private final int expectedPerBucket;
+    private final double fpp;
+    private final long maxEntries;
+
+    private final Map<String, TimeBucketedBloomFilter> filters = new ConcurrentHashMap<>();
+    private final AtomicLong bloomPositives = new AtomicLong();
+    private final AtomicLong bloomFalsePositives = new AtomicLong();
+
+    public IdempotencyService(
+            JedisPool pool,
+            MetricsService metrics,
+            @Value("${app.idempotency.enabled}") boolean enabled,
+            @Value("${app.idempotency.ttlSeconds}") int ttlSeconds,
+            @Value("${app.idempotency.buckets}") int buckets,
+            @Value("${app.idempotency.expectedPerBucket}") int expectedPerBucket,
+            @Value("${app.idempotency.falsePositiveRate}") double fpp,
+            @Value("${app.idempotency.maxEntriesPerScope}") long maxEntries
+    ) {
+        this.pool = pool;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.ttlSeconds = ttlSeconds;
+        this.buckets = buckets;
+        this.expectedPerBucket = expectedPerBucket;
+        this.fpp = fpp;
+        this.maxEntries = maxEntries;
+
+        metrics.gauge("idempotency_bloom_false_positive_ratio",
+                "Share of Bloom positives not confirmed by the seen-set",
+                () -> {
+                    long p = bloomPositives.get();
+                    return p == 0 ? 0.0 : (double) bloomFalsePositives.get() / p;
+                });
+    }
+
+    public boolean isDuplicate(String scope, String eventId) {
+        if (!enabled || eventId == null) return false;
+        if (!filter(scope).mightContain(eventId)) return false;
+
+        try (Jedis j = pool.getResource()) {
+            return confirm(j.zscore(key(scope), eventId) != null);
+        }
+    }
+
+    /**
+     * Batch variant, aligned with the inputs; also flags repeats within the batch itself.
+     * Bloom positives of the whole batch are confirmed in one pipeline flush.
+     */
+    public boolean[] duplicates(List<String> scopes, List<String> eventIds) {
+        boolean[] dup = new boolean[eventIds.size()];
+        if (!enabled) return dup;
+
+        Set<String> inBatch = new HashSet<>();
+        List<Integer> positives = new ArrayList<>();
+        for (int i = 0; i < eventIds.size(); i++) {
+            String id = eventIds.get(i);
+            if (id == null) continue;
+            if (!inBatch.add(scopes.get(i) + '\u0000' + id)) {
+                dup[i] = true;
+                metrics.incDuplicateSkipped();
+            } else if (filter(scopes.get(i)).mightContain(id)) {
+                positives.add(i);
+            }
+        }
+        if (positives.isEmpty()) return dup;
+
+        try (Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            List<Response<Double>> scores = new ArrayList<>(positives.size());
+            for (int i : positives) scores.add(p.zscore(key(scopes.get(i)), eventIds.get(i)));
+            p.sync();
+            for (int k = 0; k < positives.size(); k++) {
+                dup[positives.get(k)] = confirm(scores.get(k).get() != null);
+            }
+        }
+        return dup;
+    }
+
+    public void markProcessed(String scope, String eventId) {
+        if (eventId == null) return;
+        markProcessed(List.of(scope), List.of(eventId));
+    }
+
+    /**
+     * Records processed events; best effort (a failed mark only means a later replay is not skipped).
+     */
+    public void markProcessed(List<String> scopes, List<String> eventIds) {
+        if (!enabled || eventIds.isEmpty()) return;
+
+        long now = System.currentTimeMillis();
+        Set<String> touched = new HashSet<>();
+        try (Jedis j = pool.getResource()) {
+            Pipeline p = j.pipelined();
+            for (int i = 0; i < eventIds.size(); i++) {
+                String id = eventIds.get(i);
+                if (id == null) continue;
+                String scope = scopes.get(i);
+                filter(scope).add(id);
+                p.zadd(key(scope), now, id);
+                touched.add(scope);
+            }
+            for (String scope : touched) {
+                String key = key(scope);
+                p.zremrangeByScore(key, Double.NEGATIVE_INFINITY, now - ttlSeconds * 1000L);
+                p.zremrangeByRank(key, 0, -(maxEntries + 1));
+                p.expire(key, ttlSeconds);
+            }
+            p.sync();
+        } catch (RuntimeException e) {
+            log.warn("Could not mark {} events as processed", eventIds.size(), e);
+        }
+    }
+
+    /**
+     * Drops local state of scopes (re)assigned to this instance; another consumer may have
+     * processed them since, so they are re-warmed from Redis on next use.
+     */
+    public void forget(Collection<String> scopes) {
+        scopes.forEach(filters::remove);
+    }
+
+    private boolean confirm(boolean seen) {
+        bloomPositives.incrementAndGet();
+        if (seen) {
+            metrics.incDuplicateSkipped();
+        } else {
+            bloomFalsePositives.incrementAndGet();
+            metrics.incBloomFalsePositive();
+        }
+        return seen;
+    }
+
+    // warmed outside the map: no Redis round trip under the map's bin lock. Two first uses may both
+    // warm; the first one published wins.
+    private TimeBucketedBloomFilter filter(String scope) {
+        TimeBucketedBloomFilter f = filters.get(scope);
+        if (f != null) return f;
+        TimeBucketedBloomFilter warmed = warm(scope);
+        TimeBucketedBloomFilter raced = filters.putIfAbsent(scope, warmed);
+        return raced != null ? raced : warmed;
+    }
+
+    private TimeBucketedBloomFilter warm(String scope) {
+        long bucketMillis = Math.max(1000L, ttlSeconds * 1000L / buckets);
+        TimeBucketedBloomFilter f = new TimeBucketedBloomFilter(buckets, bucketMillis, expectedPerBucket, fpp);
+        try (Jedis j = pool.getResource()) {
+            long from = System.currentTimeMillis() - ttlSeconds * 1000L;
+            // each id goes to the bucket of its processing time (the score)
+            List<Tuple> seen = j.zrangeByScoreWithScores(key(scope), from, Double.POSITIVE_INFINITY);
+            for (Tuple t : seen) f.add(t.getElement(), (long) t.getScore());
+            log.info("Idempotency scope {} warmed with {} event ids", scope, seen.size());
+        }
+        return f;
+    }
+
+    private static String key(String scope) {
+        return "idem:" + scope;
+    }
+}
@@ -0,0 +1,77 @@
+package com.bank.fraud.service;
+
+import org.springframework.data.domain.Limit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset (seek) pagination over (timestamp, id): a page starts strictly after the last row of the
+ * previous one, so a deep page costs what the first one does and rows inserted meanwhile do not
+ * shift others between pages. The cursor is opaque to clients (base64url of "epochSecond.nano:id").
+ */
+public final class Keyset {
+
+    public static final int MAX_LIMIT = 1000;
+
+    // first page of a newest-first / oldest-first listing
+    static final Cursor NEWEST = new Cursor(Instant.parse("9999-12-31T00:00:00Z"), Long.MAX_VALUE);
+    static final Cursor OLDEST = new Cursor(Instant.EPOCH, 0);
+
+    private Keyset() {}
+
+    public record Cursor(Instant at, long id) {
+
+        /**
+         * @param first cursor of the first page, used when token is null or blank
+         */
+        static Cursor parse(String token, Cursor first) {
+            if (token == null || token.isBlank()) return first;
+            try {
+                String s = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+                int dot = s.indexOf('.');
+                int colon = s.indexOf(':', dot + 1);
+                return new Cursor(
+                        Instant.ofEpochSecond(Long.parseLong(s.substring(0, dot)), Long.parseLong(s.substring(dot + 1, colon))),
+                        Long.parseLong(s.substring(colon + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("invalid cursor: " + token);
+            }
+        }
+
+        String token() {
+            String s = at.getEpochSecond() + "." + at.getNano() + ":" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * @param nextCursor null on the last page
+     */
+    public record Page<T>(List<T> items, String nextCursor) {}
+
+    /**
+     * Rejects a malformed cursor or an out-of-range limit; controllers call it before any work starts.
+     */
+    public static void validate(String cursor, int limit) {
+        Cursor.parse(cursor, OLDEST);
+        fetchLimit(limit);
+    }
+
+    /**
+     * One row more than the page holds, to tell whether another page follows.
+     */
+    static Limit fetchLimit(int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) throw new IllegalArgumentException("limit must be 1.." + MAX_LIMIT);
+        return Limit.of(limit + 1);
+    }
+
+    static <T> Page<T> page(List<T> rows, int limit, Function<T, Cursor> key) {
+        if (rows.size() <= limit) return new Page<>(rows, null);
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, key.apply(items.get(limit - 1)).token());
+    }
+}
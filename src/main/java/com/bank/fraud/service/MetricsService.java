@@ -1,9 +1,15 @@
 package com.bank.fraud.service;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
 @Service
 public class MetricsService {
 
@@ -20,6 +26,119 @@ public class MetricsService {
                 .increment();
     }
 
+    public void incKafkaProcessed(int n) {
+        Counter.builder("kafka_events_processed_total")
+                .description("Total kafka transaction events processed")
+                .register(registry)
+                .increment(n);
+    }
+
+    public void incKafkaFailed() {
+        Counter.builder("kafka_events_failed_total")
+                .description("Transaction events skipped after exhausting retries")
+                .register(registry)
+                .increment();
+    }
+
+    public void recordBatchSize(int size) {
+        DistributionSummary.builder("kafka_batch_size")
+                .description("Transaction events per consumed batch")
+                .register(registry)
+                .record(size);
+    }
+
+    public void incDuplicateSkipped() {
+        Counter.builder("idempotency_duplicates_skipped_total")
+                .description("Redelivered transaction events skipped by eventId")
+                .register(registry)
+                .increment();
+    }
+
+    public void incBloomFalsePositive() {
+        Counter.builder("idempotency_bloom_false_positives_total")
+                .description("Bloom filter hits not confirmed by the seen-set")
+                .register(registry)
+                .increment();
+    }
+
+    public void recordPolicyReload(String policy, String outcome, long nanos) {
+        Timer.builder("policy_reload_seconds")
+                .description("Policy read + validate + compile time")
+                .tag("policy", safe(policy))
+                .tag("outcome", safe(outcome))
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void incPolicyReloadFailed(String policy) {
+        Counter.builder("policy_reload_failures_total")
+                .description("Policy loads rejected (unreadable or invalid file)")
+                .tag("policy", safe(policy))
+                .register(registry)
+                .increment();
+    }
+
+    public void incShadowEvaluated(int n) {
+        Counter.builder("policy_shadow_events_total")
+                .description("Events evaluated against the candidate policy")
+                .register(registry)
+                .increment(n);
+    }
+
+    public void incShadowDropped(int n) {
+        Counter.builder("policy_shadow_dropped_total")
+                .description("Events not shadow-evaluated because the shadow queue was full")
+                .register(registry)
+                .increment(n);
+    }
+
+    public void incShadowRuleDiff(String ruleId, String change) {
+        Counter.builder("policy_shadow_rule_diff_total")
+                .description("Rule hits the candidate policy adds / removes compared to the live one")
+                .tag("rule", safe(ruleId))
+                .tag("change", safe(change))
+                .register(registry)
+                .increment();
+    }
+
+    public void incShadowBlockDiff(String change) {
+        Counter.builder("policy_shadow_block_diff_total")
+                .description("Events the candidate policy would block / stop blocking")
+                .tag("change", safe(change))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Registered once and kept by the caller, for paths too hot for a registry lookup per call.
+     */
+    public Counter counter(String name, String description, String... tags) {
+        return Counter.builder(name)
+                .description(description)
+                .tags(tags)
+                .register(registry);
+    }
+
+    public void recordCreditBlockLag(long millis) {
+        Timer.builder("credit_block_change_lag_seconds")
+                .description("Time from a block / unblock to the in-memory credit-block cache applying it")
+                .register(registry)
+                .record(Math.max(millis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    public void recordOutboxLag(long millis) {
+        Timer.builder("outbox_relay_lag_seconds")
+                .description("Age of the oldest outbox message of a relay round when it was acknowledged by Kafka")
+                .register(registry)
+                .record(Math.max(millis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    public void gauge(String name, String description, Supplier<Number> value) {
+        Gauge.builder(name, value)
+                .description(description)
+                .register(registry);
+    }
+
     public void incAlert(String type, String severity) {
         Counter.builder("fraud_alerts_total")
                 .description("Total alerts created")
@@ -29,6 +148,14 @@ public class MetricsService {
                 .increment();
     }
 
+    public void incAlertAggregated(String ruleId) {
+        Counter.builder("fraud_alerts_aggregated_total")
+                .description("Rule hits folded into an existing alert instead of creating one")
+                .tag("rule", safe(ruleId))
+                .register(registry)
+                .increment();
+    }
+
     public void incCaseOpened(String priority) {
         Counter.builder("fraud_cases_opened_total")
                 .description("Total cases opened")
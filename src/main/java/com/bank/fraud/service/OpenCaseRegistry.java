@@ -0,0 +1,187 @@
+package com.bank.fraud.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The one active (OPEN / INVESTIGATING) case per customer.
+ * <p>
+ * The partial unique index ux_case_customer_active makes "one active case per customer" a database
+ * rule, so opening is a single INSERT ... ON CONFLICT DO NOTHING: of two concurrent events only one
+ * creates the case, the other reads it. Active case ids are cached per customer; a status change
+ * evicts the entry here after commit and on the other instances via NOTIFY case_status_changed
+ * (the whole cache is dropped whenever the LISTEN connection reconnects).
+ * <p>
+ * A lookup caches its result only after its transaction commits, and only if no eviction of the
+ * customer happened since it read the database: otherwise a case closed while a long (batch)
+ * transaction was running would be put back and stay cached as active.
+ * <p>
+ * If schema.sql cannot create the index because a customer already has several active cases, opening
+ * falls back to read-then-insert and an error is logged until the duplicates are resolved.
+ */
+@Service
+public class OpenCaseRegistry {
+
+    static final String CHANNEL = "case_status_changed";
+
+    private static final Logger log = LoggerFactory.getLogger(OpenCaseRegistry.class);
+
+    // same predicate in the index (schema.sql), ON CONFLICT and the lookup, so the planner can use the index
+    private static final String ACTIVE = "upper(status) IN ('OPEN', 'INVESTIGATING')";
+    private static final String INDEXED =
+            "SELECT count(*) FROM pg_indexes WHERE schemaname = current_schema() AND indexname = 'ux_case_customer_active'";
+    private static final String FIND_ACTIVE =
+            "SELECT id FROM fraud_cases WHERE customer_no = ? AND " + ACTIVE + " ORDER BY opened_at DESC LIMIT 1";
+    private static final String INSERT =
+            "INSERT INTO fraud_cases (customer_no, status, priority, opened_at, summary, evidence_event_id) "
+                    + "VALUES (?, 'OPEN', ?, ?, ?, ?)";
+    private static final String INSERT_UNLESS_ACTIVE =
+            INSERT + " ON CONFLICT (customer_no) WHERE " + ACTIVE + " DO NOTHING";
+
+    private final JdbcTemplate jdbc;
+    private final PgNotificationBus bus;
+    private final MetricsService metrics;
+
+    private static final int EVICTION_STRIPES = 1024;
+
+    private final ConcurrentHashMap<String, Long> active = new ConcurrentHashMap<>();
+    // eviction count per customer stripe, changed only inside active.compute of the evicted key
+    private final AtomicLongArray evictions = new AtomicLongArray(EVICTION_STRIPES);
+    private volatile boolean indexed;
+
+    public OpenCaseRegistry(JdbcTemplate jdbc, PgNotificationBus bus, MetricsService metrics) {
+        this.jdbc = jdbc;
+        this.bus = bus;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void start() {
+        Long indexes = jdbc.queryForObject(INDEXED, Long.class);
+        indexed = indexes != null && indexes > 0;
+        if (!indexed) {
+            log.error("ux_case_customer_active is missing, some customers have more than one OPEN/INVESTIGATING case; "
+                    + "concurrent events may open duplicate cases until those are closed and the service restarted");
+        }
+        bus.subscribe(CHANNEL, this::evict, this::evictAll);
+        metrics.gauge("open_case_cache_entries", "Customers whose active case id is cached", active::size);
+    }
+
+    /**
+     * Active case of the customer, created (status OPEN) when there is none.
+     * Runs on the caller's transaction.
+     */
+    public Opened openOrGet(String customerNo, String priority, String summary, String evidenceEventId) {
+        Long cached = active.get(customerNo);
+        if (cached != null) return new Opened(cached, false);
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            long seen = evictionCount(customerNo);
+            Long existing = findActive(customerNo);
+            if (existing != null) {
+                cache(customerNo, existing, seen);
+                return new Opened(existing, false);
+            }
+            List<Long> created = jdbc.queryForList((indexed ? INSERT_UNLESS_ACTIVE : INSERT) + " RETURNING id", Long.class,
+                    customerNo, priority, Timestamp.from(Instant.now()), summary, evidenceEventId);
+            if (!created.isEmpty()) {
+                cache(customerNo, created.get(0), seen);
+                return new Opened(created.get(0), true);
+            }
+            // a concurrent event opened it first (or it was closed again in between): read it again
+        }
+        throw new IllegalStateException("Could not open or find the active case of customer " + customerNo);
+    }
+
+    /**
+     * Active case id of the customer, or null.
+     */
+    public Long activeCaseId(String customerNo) {
+        Long cached = active.get(customerNo);
+        if (cached != null) return cached;
+        long seen = evictionCount(customerNo);
+        Long id = findActive(customerNo);
+        if (id != null) cache(customerNo, id, seen);
+        return id;
+    }
+
+    /**
+     * The ids among {@code caseIds} that are still OPEN / INVESTIGATING.
+     */
+    public Set<Long> activeAmong(Collection<Long> caseIds) {
+        if (caseIds.isEmpty()) return Set.of();
+        Long[] ids = caseIds.toArray(Long[]::new);
+        return new HashSet<>(jdbc.query("SELECT id FROM fraud_cases WHERE id = ANY(?) AND " + ACTIVE,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)), (rs, i) -> rs.getLong(1)));
+    }
+
+    /**
+     * Called in the transaction that changed the status of a case of this customer.
+     */
+    public void statusChanged(String customerNo) {
+        evict(customerNo);
+        bus.notify(CHANNEL, customerNo);
+        afterCommit(() -> evict(customerNo));
+    }
+
+    private Long findActive(String customerNo) {
+        List<Long> ids = jdbc.queryForList(FIND_ACTIVE, Long.class, customerNo);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    // only committed cases are cached: a rolled back insert must not stay in the cache. Not cached if
+    // the customer was evicted after the read (seen = evictionCount(customerNo) before it).
+    private void cache(String customerNo, long caseId, long seen) {
+        afterCommit(() -> active.compute(customerNo,
+                (k, v) -> evictions.get(stripe(k)) == seen ? Long.valueOf(caseId) : v));
+    }
+
+    private void evict(String customerNo) {
+        active.compute(customerNo, (k, v) -> {
+            evictions.incrementAndGet(stripe(k));
+            return null;
+        });
+    }
+
+    private void evictAll() {
+        for (int i = 0; i < EVICTION_STRIPES; i++) evictions.incrementAndGet(i);
+        active.clear();
+    }
+
+    private long evictionCount(String customerNo) {
+        return evictions.get(stripe(customerNo));
+    }
+
+    private static int stripe(String customerNo) {
+        return customerNo.hashCode() & (EVICTION_STRIPES - 1);
+    }
+
+    private static void afterCommit(Runnable r) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            r.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                r.run();
+            }
+        });
+    }
+
+    public record Opened(long caseId, boolean created) {}
+}
@@ -0,0 +1,173 @@
+package com.bank.fraud.service;
+
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes outbox_events to Kafka in id order, app.outbox.batchSize rows per round:
+ * <ol>
+ *   <li>pg_try_advisory_xact_lock: one relay across all instances. Per-key order holds because
+ *       outbox ids are drawn from a non-pooled sequence inside the writing transaction, after the
+ *       customer_risk_state row lock is taken (see {@link com.bank.fraud.domain.OutboxEvent}); an id
+ *       is never visible before a lower id of the same customer</li>
+ *   <li>read the oldest rows, send them all (the idempotent producer batches and compresses them),
+ *       wait for every ack</li>
+ *   <li>delete exactly the rows sent, commit</li>
+ * </ol>
+ * A failed round rolls back and is retried with backoff, so delivery is at least once; the
+ * outbox-id header lets consumers drop repeats. The relay thread is woken after each commit that
+ * added rows and otherwise polls every app.outbox.pollMillis.
+ */
+@Service
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    // advisory lock key of the relay ("outbox")
+    private static final long LOCK_KEY = 0x6f7574626f78L;
+    private static final String NEXT = """
+            SELECT id, topic, message_key, event_type, payload_json, created_at
+            FROM outbox_events ORDER BY id LIMIT ?""";
+    private static final String DELETE = "DELETE FROM outbox_events WHERE id = ANY(?)";
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final KafkaTemplate<String, String> kafka;
+    private final MetricsService metrics;
+    private final int batchSize;
+    private final long pollMillis;
+    private final long sendTimeoutMillis;
+    private final Counter published;
+    private final Counter failed;
+
+    private volatile boolean running = true;
+    private volatile Thread relay;
+
+    public OutboxRelay(
+            JdbcTemplate jdbc,
+            PlatformTransactionManager txManager,
+            KafkaTemplate<String, String> kafka,
+            MetricsService metrics,
+            @Value("${app.outbox.batchSize}") int batchSize,
+            @Value("${app.outbox.pollMillis}") long pollMillis,
+            @Value("${app.outbox.sendTimeoutMillis}") long sendTimeoutMillis
+    ) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(txManager);
+        this.kafka = kafka;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.pollMillis = pollMillis;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.published = metrics.counter("outbox_published_total", "Outbox messages acknowledged by Kafka");
+        this.failed = metrics.counter("outbox_relay_failures_total", "Outbox relay rounds rolled back and retried");
+    }
+
+    @PostConstruct
+    void start() {
+        relay = Thread.ofPlatform().daemon().name("outbox-relay").start(this::relayLoop);
+    }
+
+    /**
+     * Called after a commit that added outbox rows.
+     */
+    void wake() {
+        Thread t = relay;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    private void relayLoop() {
+        long backoffMs = 500;
+        while (running) {
+            int n;
+            try {
+                n = relayBatch();
+                backoffMs = 500;
+            } catch (RuntimeException e) {
+                failed.increment();
+                log.warn("Outbox relay round failed, retrying in {} ms", backoffMs, e);
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoffMs));
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+                continue;
+            }
+            // a full batch means more are waiting; -1: another instance holds the relay lock
+            if (n < batchSize) LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(pollMillis));
+        }
+    }
+
+    /**
+     * @return rows published, -1 if another instance is relaying
+     */
+    private int relayBatch() {
+        Integer n = tx.execute(s -> {
+            if (!Boolean.TRUE.equals(jdbc.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, LOCK_KEY))) {
+                return -1;
+            }
+            List<Row> rows = jdbc.query(NEXT, (rs, i) -> new Row(rs.getLong(1), rs.getString(2), rs.getString(3),
+                    rs.getString(4), rs.getString(5), rs.getTimestamp(6)), batchSize);
+            if (rows.isEmpty()) return 0;
+
+            List<CompletableFuture<?>> acks = new ArrayList<>(rows.size());
+            Long[] ids = new Long[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                Row r = rows.get(i);
+                ProducerRecord<String, String> record = new ProducerRecord<>(r.topic(), r.key(), r.payload());
+                record.headers()
+                        .add("event-type", r.eventType().getBytes(StandardCharsets.UTF_8))
+                        .add("outbox-id", Long.toString(r.id()).getBytes(StandardCharsets.UTF_8));
+                acks.add(kafka.send(record));
+                ids[i] = r.id();
+            }
+            kafka.flush(); // no linger: everything read is sent now
+            await(CompletableFuture.allOf(acks.toArray(CompletableFuture[]::new)));
+
+            jdbc.update(DELETE, ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids)));
+            published.increment(rows.size());
+            metrics.recordOutboxLag(System.currentTimeMillis() - rows.get(0).createdAt().getTime());
+            return rows.size();
+        });
+        return n == null ? 0 : n;
+    }
+
+    private void await(CompletableFuture<Void> acks) {
+        try {
+            acks.get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Kafka acks", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Kafka did not acknowledge the outbox batch", e);
+        }
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        Thread t = relay;
+        if (t == null) return;
+        LockSupport.unpark(t);
+        t.join(sendTimeoutMillis);
+    }
+
+    private record Row(long id, String topic, String key, String eventType, String payload, Timestamp createdAt) {}
+}
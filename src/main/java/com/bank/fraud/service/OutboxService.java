@@ -0,0 +1,74 @@
+package com.bank.fraud.service;
+
+import com.bank.fraud.domain.FraudAlert;
+import com.bank.fraud.domain.OutboxEvent;
+import com.bank.fraud.kafka.KafkaTopics;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+
+import static com.bank.fraud.service.Repositories.*;
+
+/**
+ * Transactional outbox: decisions and new alerts become outbox_events rows in the transaction that
+ * makes them, so a message exists exactly when the change is committed. {@link OutboxRelay}
+ * publishes them; it is woken right after commit instead of waiting for its next poll.
+ */
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepo repo;
+    private final OutboxRelay relay;
+    private final ObjectMapper om = new ObjectMapper();
+
+    public OutboxService(OutboxEventRepo repo, OutboxRelay relay) {
+        this.repo = repo;
+        this.relay = relay;
+    }
+
+    void alertRaised(FraudAlert a) {
+        add(KafkaTopics.FRAUD_ALERTS, a.getCustomerNo(), "ALERT_RAISED", new AlertMessage(
+                a.getId(), a.getCaseId(), a.getEventId(), a.getCustomerNo(), a.getAlertType(), a.getSeverity(),
+                a.getRuleId(), a.getCreatedAt().toString()));
+    }
+
+    /**
+     * Must be called after the customer_risk_state update that returned {@code version}: the row lock
+     * it holds until commit orders this row's id after every earlier transition of the customer.
+     */
+    void creditBlockChanged(String customerNo, boolean blocked, String reason, String actor, Instant at,
+                            long version) {
+        add(KafkaTopics.FRAUD_ACTIONS, customerNo, blocked ? "CREDIT_BLOCKED" : "CREDIT_UNBLOCKED",
+                new CreditBlockMessage(customerNo, blocked, reason, actor, at.toString(), version));
+    }
+
+    private void add(String topic, String key, String eventType, Object payload) {
+        String json;
+        try {
+            json = om.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize " + eventType, e);
+        }
+        repo.save(new OutboxEvent(topic, key, eventType, json));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                relay.wake();
+            }
+        });
+    }
+
+    public record AlertMessage(Long alertId, Long caseId, String eventId, String customerNo, String alertType,
+                               String severity, String ruleId, String createdAt) {}
+
+    /**
+     * version: customer_risk_state.version after the transition; a consumer holding a higher version
+     * for the customer drops the message as stale
+     */
+    public record CreditBlockMessage(String customerNo, boolean creditBlocked, String reason, String actor,
+                                     String at, long version) {}
+}
@@ -0,0 +1,143 @@
+package com.bank.fraud.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Postgres LISTEN/NOTIFY between instances.
+ * <p>
+ * {@link #notify} runs pg_notify on the caller's transaction, so listeners hear about a change only
+ * once it is committed (and never about a rolled back one). Listening uses one dedicated connection
+ * (outside the pool) polled by a daemon thread. Notifications sent while that connection is down are
+ * lost, so after every (re)connect each subscriber's resync callback runs.
+ */
+@Service
+public class PgNotificationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(PgNotificationBus.class);
+
+    private final JdbcTemplate jdbc;
+    private final String url;
+    private final String username;
+    private final String password;
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private volatile boolean subscriptionsChanged;
+    private volatile boolean running = true;
+    private volatile Thread listener;
+
+    public PgNotificationBus(
+            JdbcTemplate jdbc,
+            @Value("${spring.datasource.url}") String url,
+            @Value("${spring.datasource.username}") String username,
+            @Value("${spring.datasource.password}") String password
+    ) {
+        this.jdbc = jdbc;
+        this.url = url;
+        this.username = username;
+        this.password = password;
+    }
+
+    /**
+     * @param onPayload called on the listener thread for every notification on the channel
+     * @param resync    called on the listener thread after each (re)connect, when notifications may have been missed
+     */
+    public synchronized void subscribe(String channel, Consumer<String> onPayload, Runnable resync) {
+        subscribers.computeIfAbsent(channel, c -> new CopyOnWriteArrayList<>()).add(new Subscriber(onPayload, resync));
+        subscriptionsChanged = true;
+        if (listener == null) {
+            listener = Thread.ofPlatform().daemon().name("pg-notify-listener").start(this::listenLoop);
+        }
+    }
+
+    /**
+     * Queues a notification on the current transaction (sent on commit); payload up to 8000 bytes.
+     */
+    public void notify(String channel, String payload) {
+        jdbc.queryForList("SELECT pg_notify(?, ?)", channel, payload);
+    }
+
+    private void listenLoop() {
+        long backoffMs = 500;
+        while (running) {
+            try (Connection c = DriverManager.getConnection(url, username, password)) {
+                listen(c);
+                backoffMs = 500;
+                resyncAll();
+                PGConnection pg = c.unwrap(PGConnection.class);
+                while (running) {
+                    if (subscriptionsChanged) listen(c);
+                    PGNotification[] batch = pg.getNotifications(500);
+                    if (batch == null) continue;
+                    for (PGNotification n : batch) dispatch(n.getName(), n.getParameter());
+                }
+            } catch (SQLException e) {
+                if (!running) return;
+                log.warn("LISTEN connection lost, reconnecting in {} ms", backoffMs, e);
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30_000);
+            }
+        }
+    }
+
+    private void listen(Connection c) throws SQLException {
+        subscriptionsChanged = false;
+        try (Statement st = c.createStatement()) {
+            // channel names are code constants, never user input
+            for (String channel : subscribers.keySet()) st.execute("LISTEN " + channel);
+        }
+    }
+
+    private void resyncAll() {
+        subscribers.forEach((channel, subs) -> {
+            for (Subscriber s : subs) {
+                try {
+                    s.resync().run();
+                } catch (RuntimeException e) {
+                    log.error("Resync of {} subscriber failed", channel, e);
+                }
+            }
+        });
+    }
+
+    private void dispatch(String channel, String payload) {
+        List<Subscriber> subs = subscribers.get(channel);
+        if (subs == null) return;
+        for (Subscriber s : subs) {
+            try {
+                s.onPayload().accept(payload);
+            } catch (RuntimeException e) {
+                log.error("Handling {} notification '{}' failed", channel, payload, e);
+            }
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        Thread t = listener;
+        if (t != null) t.interrupt();
+    }
+
+    private record Subscriber(Consumer<String> onPayload, Runnable resync) {}
+}
@@ -3,39 +3,129 @@ package com.bank.fraud.service;
 import com.bank.fraud.domain.CustomerRiskState;
 import com.bank.fraud.domain.FraudAlert;
 import com.bank.fraud.domain.FraudCase;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * The page* queries are keyset pages (see {@link Keyset}): rows strictly after (at, id) in the
+ * listing's order. The stream* queries walk the same order through a forward-only cursor,
+ * STREAM_FETCH_SIZE rows per round trip; they need a (read-only) transaction and a closed stream.
+ */
 public class Repositories {
+
+    static final String STREAM_FETCH_SIZE = "500";
+
+    /**
+     * Hands each streamed row to sink and then evicts it from the persistence context, so memory
+     * stays flat however many rows the stream has; closes the stream.
+     */
+    static <T> void forEachDetached(Stream<T> rows, EntityManager em, Consumer<T> sink) {
+        try (rows) {
+            rows.forEach(row -> {
+                sink.accept(row);
+                em.detach(row);
+            });
+        }
+    }
+
     public interface FraudAlertRepo extends JpaRepository<FraudAlert, Long> {
         List<FraudAlert> findTop50ByCustomerNoOrderByCreatedAtDesc(String customerNo);
         List<FraudAlert> findTop200ByCaseIdOrderByCreatedAtAsc(Long caseId);
 
+        @Query("select a from FraudAlert a where a.customerNo = :customerNo"
+                + " and (a.createdAt < :at or (a.createdAt = :at and a.id < :id)) order by a.createdAt desc, a.id desc")
+        List<FraudAlert> pageByCustomerNo(@Param("customerNo") String customerNo, @Param("at") Instant at, @Param("id") long id, Limit limit);
+
+        @Query("select a from FraudAlert a where a.caseId = :caseId"
+                + " and (a.createdAt < :at or (a.createdAt = :at and a.id < :id)) order by a.createdAt desc, a.id desc")
+        List<FraudAlert> pageByCaseId(@Param("caseId") Long caseId, @Param("at") Instant at, @Param("id") long id, Limit limit);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        @Query("select a from FraudAlert a where a.customerNo = :customerNo order by a.createdAt desc, a.id desc")
+        Stream<FraudAlert> streamByCustomerNo(@Param("customerNo") String customerNo);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        @Query("select a from FraudAlert a where a.caseId = :caseId order by a.createdAt desc, a.id desc")
+        Stream<FraudAlert> streamByCaseId(@Param("caseId") Long caseId);
     }
 
     public interface FraudCaseRepo extends JpaRepository<FraudCase, Long> {
         List<FraudCase> findTop50ByCustomerNoOrderByOpenedAtDesc(String customerNo);
         List<FraudCase> findTop50ByStatusOrderByOpenedAtDesc(String status);
+
+        @Query("select c from FraudCase c where c.customerNo = :customerNo"
+                + " and (c.openedAt < :at or (c.openedAt = :at and c.id < :id)) order by c.openedAt desc, c.id desc")
+        List<FraudCase> pageByCustomerNo(@Param("customerNo") String customerNo, @Param("at") Instant at, @Param("id") long id, Limit limit);
+
+        @Query("select c from FraudCase c where c.status = :status"
+                + " and (c.openedAt < :at or (c.openedAt = :at and c.id < :id)) order by c.openedAt desc, c.id desc")
+        List<FraudCase> pageByStatus(@Param("status") String status, @Param("at") Instant at, @Param("id") long id, Limit limit);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        @Query("select c from FraudCase c where c.customerNo = :customerNo order by c.openedAt desc, c.id desc")
+        Stream<FraudCase> streamByCustomerNo(@Param("customerNo") String customerNo);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        @Query("select c from FraudCase c where c.status = :status order by c.openedAt desc, c.id desc")
+        Stream<FraudCase> streamByStatus(@Param("status") String status);
     }
 
     public interface CustomerRiskRepo extends JpaRepository<CustomerRiskState, String> {
         Optional<CustomerRiskState> findByCustomerNo(String customerNo);
     }
-}
 
     public interface WhitelistRepo extends JpaRepository<com.bank.fraud.domain.WhitelistEntry, Long> {
         java.util.Optional<com.bank.fraud.domain.WhitelistEntry> findByTypeAndValue(String type, String value);
         java.util.List<com.bank.fraud.domain.WhitelistEntry> findTop200ByTypeOrderByCreatedAtDesc(String type);
         java.util.List<com.bank.fraud.domain.WhitelistEntry> findTop200ByOrderByCreatedAtDesc();
+
+        // bumped by a trigger on every statement that writes whitelist_entries (schema.sql)
+        @Query(value = "select version from whitelist_version where id = 1", nativeQuery = true)
+        long changeVersion();
     }
         public interface CaseEventRepo extends JpaRepository<com.bank.fraud.domain.CaseEvent, Long> {
         java.util.List<com.bank.fraud.domain.CaseEvent> findTop500ByCaseIdOrderByCreatedAtAsc(Long caseId);
+
+        // oldest first, like the timeline
+        @Query("select e from CaseEvent e where e.caseId = :caseId"
+                + " and (e.createdAt > :at or (e.createdAt = :at and e.id > :id)) order by e.createdAt asc, e.id asc")
+        List<com.bank.fraud.domain.CaseEvent> pageByCaseId(@Param("caseId") Long caseId, @Param("at") Instant at, @Param("id") long id, Limit limit);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        @Query("select e from CaseEvent e where e.caseId = :caseId order by e.createdAt asc, e.id asc")
+        Stream<com.bank.fraud.domain.CaseEvent> streamByCaseId(@Param("caseId") Long caseId);
     }
         public interface ActionRequestRepo extends JpaRepository<com.bank.fraud.domain.ActionRequest, Long> {
         java.util.List<com.bank.fraud.domain.ActionRequest> findTop200ByStatusOrderByRequestedAtDesc(String status);
         java.util.List<com.bank.fraud.domain.ActionRequest> findTop200ByCustomerNoOrderByRequestedAtDesc(String customerNo);
+
+        @Query("select r from ActionRequest r where r.customerNo = :customerNo"
+                + " and (r.requestedAt < :at or (r.requestedAt = :at and r.id < :id)) order by r.requestedAt desc, r.id desc")
+        List<com.bank.fraud.domain.ActionRequest> pageByCustomerNo(@Param("customerNo") String customerNo, @Param("at") Instant at, @Param("id") long id, Limit limit);
+
+        @Query("select r from ActionRequest r where r.status = :status"
+                + " and (r.requestedAt < :at or (r.requestedAt = :at and r.id < :id)) order by r.requestedAt desc, r.id desc")
+        List<com.bank.fraud.domain.ActionRequest> pageByStatus(@Param("status") String status, @Param("at") Instant at, @Param("id") long id, Limit limit);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        @Query("select r from ActionRequest r where r.customerNo = :customerNo order by r.requestedAt desc, r.id desc")
+        Stream<com.bank.fraud.domain.ActionRequest> streamByCustomerNo(@Param("customerNo") String customerNo);
+
+        @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+        @Query("select r from ActionRequest r where r.status = :status order by r.requestedAt desc, r.id desc")
+        Stream<com.bank.fraud.domain.ActionRequest> streamByStatus(@Param("status") String status);
     }
 
     public interface SarReportRepo extends JpaRepository<com.bank.fraud.domain.SarReport, Long> {
@@ -43,5 +133,13 @@ public class Repositories {
         java.util.Optional<com.bank.fraud.domain.SarReport> findTop1ByCaseIdOrderByVersionDesc(Long caseId);
     }
 
+    public interface TransactionEvidenceRepo extends JpaRepository<com.bank.fraud.domain.TransactionEvidence, String> {
+    }
 
+    public interface OutboxEventRepo extends JpaRepository<com.bank.fraud.domain.OutboxEvent, Long> {
+    }
 
+    public interface SarJobRepo extends JpaRepository<com.bank.fraud.domain.SarJob, Long> {
+        java.util.List<com.bank.fraud.domain.SarJob> findByBatchIdOrderByIdAsc(String batchId);
+    }
+}
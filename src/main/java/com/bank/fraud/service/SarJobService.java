@@ -0,0 +1,131 @@
+package com.bank.fraud.service;
+
+import com.bank.fraud.domain.FraudCase;
+import com.bank.fraud.domain.SarJob;
+import com.bank.fraud.domain.SarReport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static com.bank.fraud.service.Repositories.*;
+
+/**
+ * Bulk SAR/STR generation: a request turns its case filter into one sar_jobs row per case with a
+ * single INSERT ... SELECT and returns at once; {@link SarJobWorker} generates the reports.
+ */
+@Service
+public class SarJobService {
+
+    // locked_by: the job must still be held by the worker (not reclaimed as stale, not released)
+    private static final String DONE = """
+            UPDATE sar_jobs SET status = 'DONE', report_id = ?, finished_at = now(), locked_by = NULL
+            WHERE id = ? AND status = 'RUNNING' AND locked_by = ?""";
+
+    private final JdbcTemplate jdbc;
+    private final SarJobRepo jobRepo;
+    private final SarReportService reports;
+    private final AuditService audit;
+    private final int maxCases;
+
+    public SarJobService(JdbcTemplate jdbc,
+                         SarJobRepo jobRepo,
+                         SarReportService reports,
+                         AuditService audit,
+                         @Value("${app.reports.bulk.maxCases}") int maxCases) {
+        this.jdbc = jdbc;
+        this.jobRepo = jobRepo;
+        this.reports = reports;
+        this.audit = audit;
+        this.maxCases = maxCases;
+    }
+
+    /**
+     * Queues one job per case matching every given filter (at least one is required).
+     */
+    @Transactional
+    public Batch enqueue(CaseFilter filter, String reportType, String actor, String narrative) {
+        List<String> where = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (filter.status() != null && !filter.status().isBlank()) {
+            where.add("c.status = ?");
+            args.add(filter.status());
+        }
+        if (filter.customerNo() != null && !filter.customerNo().isBlank()) {
+            where.add("c.customer_no = ?");
+            args.add(filter.customerNo());
+        }
+        if (filter.openedFrom() != null) {
+            where.add("c.opened_at >= ?");
+            args.add(Timestamp.from(filter.openedFrom()));
+        }
+        if (filter.openedTo() != null) {
+            where.add("c.opened_at < ?");
+            args.add(Timestamp.from(filter.openedTo()));
+        }
+        if (where.isEmpty()) throw new IllegalArgumentException("status, customerNo, openedFrom or openedTo is required");
+        String cases = "FROM fraud_cases c WHERE " + String.join(" AND ", where); // fixed fragments, values bound
+
+        Long matching = jdbc.queryForObject("SELECT count(*) " + cases, Long.class, args.toArray());
+        if (matching != null && matching > maxCases) {
+            throw new IllegalArgumentException(matching + " cases match, at most " + maxCases + " per request");
+        }
+
+        String batchId = UUID.randomUUID().toString();
+        String type = (reportType == null || reportType.isBlank()) ? "SAR" : reportType.toUpperCase();
+        List<Object> insertArgs = new ArrayList<>(List.of(batchId, type, actor, narrative == null ? "" : narrative));
+        insertArgs.addAll(args);
+        int jobs = jdbc.update("INSERT INTO sar_jobs (batch_id, case_id, report_type, actor, narrative, status, attempts, created_at) "
+                + "SELECT ?, c.id, ?, ?, ?, 'QUEUED', 0, now() " + cases + " ORDER BY c.id", insertArgs.toArray());
+
+        audit.write(actor, "BULK_GENERATE_REPORTS", "SAR_JOB_BATCH", batchId,
+                "{\"type\":\"" + type + "\",\"jobs\":" + jobs + "}");
+        return new Batch(batchId, jobs);
+    }
+
+    /**
+     * Generates the report of a claimed job and marks the job DONE in one transaction: a stored
+     * report and a DONE job exist together or not at all, so a crash, a failed update or a release
+     * on shutdown never queues a job whose report is already stored. If the job is no longer held by
+     * {@code lockedBy} the report is rolled back.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public SarReport complete(long jobId, String lockedBy, FraudCase caze, String reportType, String actor,
+                              String narrative) throws Exception {
+        SarReport report = reports.generate(caze, reportType, actor, narrative);
+        if (jdbc.update(DONE, report.getId(), jobId, lockedBy) == 0) {
+            throw new IllegalStateException("Job " + jobId + " is no longer held by " + lockedBy + ", report rolled back");
+        }
+        return report;
+    }
+
+    public Optional<Progress> progress(String batchId) {
+        Map<String, Long> byStatus = new HashMap<>();
+        jdbc.query("SELECT status, count(*) FROM sar_jobs WHERE batch_id = ? GROUP BY status",
+                rs -> { byStatus.put(rs.getString(1), rs.getLong(2)); }, batchId);
+        if (byStatus.isEmpty()) return Optional.empty();
+        long total = byStatus.values().stream().mapToLong(Long::longValue).sum();
+        return Optional.of(new Progress(batchId, total,
+                byStatus.getOrDefault("QUEUED", 0L), byStatus.getOrDefault("RUNNING", 0L),
+                byStatus.getOrDefault("DONE", 0L), byStatus.getOrDefault("FAILED", 0L)));
+    }
+
+    public List<SarJob> jobs(String batchId) {
+        return jobRepo.findByBatchIdOrderByIdAsc(batchId);
+    }
+
+    public record CaseFilter(String status, String customerNo, Instant openedFrom, Instant openedTo) {}
+
+    public record Batch(String batchId, int jobs) {}
+
+    public record Progress(String batchId, long total, long queued, long running, long done, long failed) {}
+}
@@ -0,0 +1,161 @@
+package com.bank.fraud.service;
+
+import com.bank.fraud.domain.FraudCase;
+import io.micrometer.core.instrument.Counter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.bank.fraud.service.Repositories.*;
+
+/**
+ * Generates the reports of queued sar_jobs, at most app.reports.bulk.concurrency at a time per
+ * instance, each on its own virtual thread. A job is marked DONE in the transaction that stores its
+ * report ({@link SarJobService#complete}), failed or re-queued right after a failure.
+ * <p>
+ * Every poll:
+ * <ul>
+ *   <li>heartbeat of the jobs running here</li>
+ *   <li>RUNNING jobs without a heartbeat for staleAfterSeconds (their instance died) are queued again,
+ *       or FAILED once they used maxAttempts</li>
+ *   <li>claims as many QUEUED jobs as there are free slots (FOR UPDATE SKIP LOCKED, so instances never
+ *       claim the same job) and loads all their cases in one query</li>
+ * </ul>
+ * A failed job is queued again until it has used maxAttempts; a missing case fails it at once.
+ */
+@Service
+public class SarJobWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(SarJobWorker.class);
+
+    private static final String CLAIM = """
+            UPDATE sar_jobs SET status = 'RUNNING', attempts = attempts + 1, locked_by = ?,
+                   started_at = now(), heartbeat_at = now(), error = NULL
+            WHERE id IN (SELECT id FROM sar_jobs WHERE status = 'QUEUED' ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED)
+            RETURNING id, case_id, report_type, actor, narrative, attempts""";
+    private static final String HEARTBEAT = "UPDATE sar_jobs SET heartbeat_at = now() WHERE id = ANY(?) AND locked_by = ?";
+    private static final String RECLAIM = """
+            UPDATE sar_jobs
+            SET status = CASE WHEN attempts >= ? THEN 'FAILED' ELSE 'QUEUED' END,
+                error = 'abandoned by ' || coalesce(locked_by, 'unknown'),
+                finished_at = CASE WHEN attempts >= ? THEN now() END,
+                locked_by = NULL
+            WHERE status = 'RUNNING' AND heartbeat_at < now() - make_interval(secs => ?)""";
+    // locked_by guards against a job that was reclaimed meanwhile
+    private static final String FAIL = """
+            UPDATE sar_jobs SET status = ?, error = ?, finished_at = CASE WHEN ? THEN now() END, locked_by = NULL
+            WHERE id = ? AND locked_by = ?""";
+    private static final String RELEASE = "UPDATE sar_jobs SET status = 'QUEUED', locked_by = NULL WHERE status = 'RUNNING' AND locked_by = ?";
+
+    private final JdbcTemplate jdbc;
+    private final FraudCaseRepo caseRepo;
+    private final SarJobService jobs;
+    private final int maxAttempts;
+    private final int staleAfterSeconds;
+    private final Semaphore slots;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+    private final String instance = ManagementFactory.getRuntimeMXBean().getName(); // pid@host
+    private final Counter done;
+    private final Counter retried;
+    private final Counter failed;
+
+    public SarJobWorker(
+            JdbcTemplate jdbc,
+            FraudCaseRepo caseRepo,
+            SarJobService jobs,
+            MetricsService metrics,
+            @Value("${app.reports.bulk.concurrency}") int concurrency,
+            @Value("${app.reports.bulk.maxAttempts}") int maxAttempts,
+            @Value("${app.reports.bulk.staleAfterSeconds}") int staleAfterSeconds
+    ) {
+        this.jdbc = jdbc;
+        this.caseRepo = caseRepo;
+        this.jobs = jobs;
+        this.maxAttempts = maxAttempts;
+        this.staleAfterSeconds = staleAfterSeconds;
+        this.slots = new Semaphore(concurrency);
+        this.done = metrics.counter("sar_jobs_total", "Bulk report jobs finished", "outcome", "done");
+        this.retried = metrics.counter("sar_jobs_total", "Bulk report jobs finished", "outcome", "retried");
+        this.failed = metrics.counter("sar_jobs_total", "Bulk report jobs finished", "outcome", "failed");
+        metrics.gauge("sar_jobs_running", "Bulk report jobs running on this instance", running::size);
+    }
+
+    @Scheduled(fixedDelayString = "${app.reports.bulk.pollMillis}")
+    void poll() {
+        try {
+            if (!running.isEmpty()) {
+                Long[] ids = running.toArray(Long[]::new);
+                jdbc.update(HEARTBEAT, ps -> {
+                    ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+                    ps.setString(2, instance);
+                });
+            }
+            int reclaimed = jdbc.update(RECLAIM, maxAttempts, maxAttempts, staleAfterSeconds);
+            if (reclaimed > 0) log.warn("Reclaimed {} bulk report jobs without heartbeat for {}s", reclaimed, staleAfterSeconds);
+
+            int free = slots.availablePermits();
+            if (free == 0) return;
+            List<Claimed> claimed = jdbc.query(CLAIM, (rs, i) -> new Claimed(rs.getLong(1), rs.getLong(2),
+                    rs.getString(3), rs.getString(4), rs.getString(5), rs.getInt(6)), instance, free);
+            if (claimed.isEmpty()) return;
+
+            Map<Long, FraudCase> cases = new HashMap<>();
+            for (FraudCase c : caseRepo.findAllById(claimed.stream().map(Claimed::caseId).toList())) cases.put(c.getId(), c);
+            for (Claimed job : claimed) {
+                slots.acquireUninterruptibly(); // never blocks: only this thread acquires, at most free times
+                running.add(job.id());
+                workers.execute(() -> run(job, cases.get(job.caseId())));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Bulk report poll failed", e);
+        }
+    }
+
+    private void run(Claimed job, FraudCase caze) {
+        try {
+            if (caze == null) throw new NoSuchElementException("case " + job.caseId() + " not found");
+            jobs.complete(job.id(), instance, caze, job.reportType(), job.actor(), job.narrative());
+            done.increment();
+        } catch (Exception e) {
+            boolean retry = job.attempts() < maxAttempts && !(e instanceof NoSuchElementException);
+            if (jdbc.update(FAIL, retry ? "QUEUED" : "FAILED", String.valueOf(e), !retry, job.id(), instance) == 0) {
+                // reclaimed or released meanwhile: its new holder owns the outcome
+                log.warn("Bulk report job {} (case {}) was taken from this instance: {}", job.id(), job.caseId(), e.toString());
+                return;
+            }
+            log.warn("Bulk report job {} (case {}) failed, attempt {}/{}", job.id(), job.caseId(), job.attempts(), maxAttempts, e);
+            (retry ? retried : failed).increment();
+        } finally {
+            running.remove(job.id());
+            slots.release();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) workers.shutdownNow();
+        // anything still marked as ours goes back to the queue instead of waiting for the stale timeout;
+        // a job whose report committed is DONE already, one still committing rolls back (complete())
+        jdbc.update(RELEASE, instance);
+    }
+
+    private record Claimed(long id, long caseId, String reportType, String actor, String narrative, int attempts) {}
+}
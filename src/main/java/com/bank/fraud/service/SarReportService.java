@@ -3,118 +3,132 @@ package com.bank.fraud.service;
 import com.bank.fraud.domain.CaseEvent;
 import com.bank.fraud.domain.FraudCase;
 import com.bank.fraud.domain.SarReport;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.sql.DataSource;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.ResultSet;
 import java.time.Instant;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static com.bank.fraud.service.Repositories.*;
 
+/**
+ * SAR/STR reports without a size cap: every alert and timeline event of the case is read through a
+ * server-side cursor and written by a JsonGenerator straight into a gzip temp file, the aggregates
+ * (counts, histograms) computed in the same pass. The file is then streamed into sar_report_content.
+ * Heap use does not depend on the size of the case.
+ * <p>
+ * Reading hands out the stored gzip bytes (or inflates them on the fly); reports from before
+ * sar_report_content still have their JSON in sar_reports.report_json.
+ */
 @Service
 public class SarReportService {
 
+    private static final String ALERTS = """
+            SELECT id, created_at, alert_type, severity, rule_id, hit_count
+            FROM fraud_alerts WHERE case_id = ? ORDER BY created_at, id""";
+    private static final String TIMELINE = """
+            SELECT created_at, event_type, event_code, actor
+            FROM case_events WHERE case_id = ? ORDER BY created_at, id""";
+    private static final String STORE = "INSERT INTO sar_report_content (report_id, encoding, content) VALUES (?, 'gzip', ?)";
+    private static final String LOAD = "SELECT content FROM sar_report_content WHERE report_id = ?";
+
     private final ObjectMapper om = new ObjectMapper();
     private final FraudCaseRepo caseRepo;
-    private final FraudAlertRepo alertRepo;
     private final CaseEventRepo eventRepo;
     private final SarReportRepo reportRepo;
     private final AuditService audit;
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate cursor;
 
     public SarReportService(FraudCaseRepo caseRepo,
-                            FraudAlertRepo alertRepo,
                             CaseEventRepo eventRepo,
                             SarReportRepo reportRepo,
-                            AuditService audit) {
+                            AuditService audit,
+                            JdbcTemplate jdbc,
+                            DataSource dataSource) {
         this.caseRepo = caseRepo;
-        this.alertRepo = alertRepo;
         this.eventRepo = eventRepo;
         this.reportRepo = reportRepo;
         this.audit = audit;
+        this.jdbc = jdbc;
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(1000); // pgjdbc streams with a cursor inside a transaction
     }
 
-    @Transactional
+    @Transactional(rollbackFor = Exception.class)
     public SarReport generate(Long caseId, String reportType, String actor, String narrative) throws Exception {
-        FraudCase caze = caseRepo.findById(caseId).orElseThrow();
+        return generate(caseRepo.findById(caseId).orElseThrow(), reportType, actor, narrative);
+    }
 
+    /**
+     * For callers that already hold the case (bulk jobs load the cases of a whole claim at once).
+     * Rolls back on any exception: a failed content write must not leave a report row behind.
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public SarReport generate(FraudCase caze, String reportType, String actor, String narrative) throws Exception {
+        Long caseId = caze.getId();
         int nextVersion = reportRepo.findTop1ByCaseIdOrderByVersionDesc(caseId)
                 .map(r -> r.getVersion() + 1)
                 .orElse(1);
+        String type = (reportType == null || reportType.isBlank()) ? "SAR" : reportType.toUpperCase();
 
-        // Gather evidence
-        var alerts = alertRepo.findTop200ByCaseIdOrderByCreatedAtAsc(caseId);
-        var timeline = eventRepo.findTop500ByCaseIdOrderByCreatedAtAsc(caseId);
-
-        Map<String, Object> header = new LinkedHashMap<>();
-        header.put("reportType", (reportType == null || reportType.isBlank()) ? "SAR" : reportType.toUpperCase());
-        header.put("version", nextVersion);
-        header.put("generatedAt", Instant.now().toString());
-        header.put("generatedBy", actor);
-
-        Map<String, Object> subject = new LinkedHashMap<>();
-        subject.put("customerNo", caze.getCustomerNo());
-        subject.put("caseId", caze.getId());
-        subject.put("caseStatus", caze.getStatus());
-        subject.put("priority", caze.getPriority());
-        subject.put("openedAt", caze.getOpenedAt().toString());
-
-        // Summarize risk indicators from alerts
-        List<Map<String, Object>> indicators = new ArrayList<>();
-        for (var a : alerts) {
-            indicators.add(Map.of(
-                    "alertId", a.getId(),
-                    "createdAt", a.getCreatedAt().toString(),
-                    "type", a.getAlertType(),
-                    "severity", a.getSeverity(),
-                    "ruleId", a.getRuleId()
-            ));
-        }
+        Path file = Files.createTempFile("sar-" + caseId + "-", ".json.gz");
+        try {
+            Written w = write(file, caze, type, nextVersion, actor, narrative);
+            long stored = Files.size(file);
+
+            SarReport saved = new SarReport(caseId, type, nextVersion, actor,
+                    w.alerts(), w.events(), w.sha256(), w.jsonBytes(), stored);
+            reportRepo.save(saved); // identity id: inserted right away
+            try (InputStream in = Files.newInputStream(file)) {
+                jdbc.update(STORE, ps -> {
+                    ps.setLong(1, saved.getId());
+                    ps.setBinaryStream(2, in, Math.toIntExact(stored));
+                });
+            }
 
-        // Include timeline entries (compact)
-        List<Map<String, Object>> events = new ArrayList<>();
-        for (CaseEvent e : timeline) {
-            events.add(Map.of(
-                    "time", e.getCreatedAt().toString(),
-                    "type", e.getEventType(),
-                    "code", e.getEventCode(),
-                    "actor", e.getActor()
+            // Timeline + audit
+            eventRepo.save(new CaseEvent(
+                    caseId,
+                    "SYSTEM",
+                    "REPORT_GENERATED",
+                    actor,
+                    "{\"reportId\":"+saved.getId()+",\"reportType\":\""+saved.getReportType()+"\",\"version\":"+saved.getVersion()+"}"
             ));
-        }
+            // the audit log cannot be rolled back: written once the report is committed (a bulk job's
+            // transaction may still roll it back, see SarJobService.complete)
+            String details = "{\"caseId\":"+caseId+",\"type\":\""+saved.getReportType()+"\",\"version\":"+saved.getVersion()+"}";
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    audit.write(actor, "GENERATE_REPORT", "SAR_REPORT", String.valueOf(saved.getId()), details);
+                }
+            });
 
-        Map<String, Object> assessment = new LinkedHashMap<>();
-        assessment.put("narrative", narrative == null ? "" : narrative);
-        assessment.put("recommendation", "Escalate to Compliance review; confirm customer intent; validate counterparties; consider account restrictions if risk persists.");
-
-        // Final report object (bank-style)
-        Map<String, Object> report = new LinkedHashMap<>();
-        report.put("header", header);
-        report.put("subject", subject);
-        report.put("riskIndicators", indicators);
-        report.put("caseTimeline", events);
-        report.put("evidenceReferences", Map.of(
-                "alertsCount", alerts.size(),
-                "timelineEventsCount", timeline.size()
-        ));
-        report.put("assessment", assessment);
-
-        String reportJson = om.writerWithDefaultPrettyPrinter().writeValueAsString(report);
-
-        SarReport saved = new SarReport(caseId, header.get("reportType").toString(), nextVersion, actor, reportJson);
-        reportRepo.save(saved);
-
-        // Timeline + audit
-        eventRepo.save(new CaseEvent(
-                caseId,
-                "SYSTEM",
-                "REPORT_GENERATED",
-                actor,
-                "{\"reportId\":"+saved.getId()+",\"reportType\":\""+saved.getReportType()+"\",\"version\":"+saved.getVersion()+"}"
-        ));
-        audit.write(actor, "GENERATE_REPORT", "SAR_REPORT", String.valueOf(saved.getId()),
-                "{\"caseId\":"+caseId+",\"type\":\""+saved.getReportType()+"\",\"version\":"+saved.getVersion()+"\"}");
-
-        return saved;
+            return saved;
+        } finally {
+            Files.deleteIfExists(file);
+        }
     }
 
     public List<SarReport> listByCase(Long caseId) {
@@ -124,4 +138,173 @@ public class SarReportService {
     public SarReport get(Long reportId) {
         return reportRepo.findById(reportId).orElseThrow();
     }
+
+    /**
+     * True if the report's JSON can be handed out gzip-encoded as stored.
+     */
+    public boolean storedAsGzip(SarReport r) {
+        return r.getReportJson() == null;
+    }
+
+    /**
+     * Report JSON into out: the stored bytes as they are if gzip (see {@link #storedAsGzip}),
+     * else inflated while copying.
+     */
+    public void writeJson(SarReport r, boolean gzip, OutputStream out) throws IOException {
+        if (!storedAsGzip(r)) {
+            out.write(r.getReportJson().getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        jdbc.query(LOAD, (ResultSet rs) -> {
+            if (!rs.next()) throw new NoSuchElementException("no content for report " + r.getId());
+            try (InputStream in = gzip ? rs.getBinaryStream(1) : new GZIPInputStream(rs.getBinaryStream(1), 1 << 16)) {
+                in.transferTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }, r.getId());
+    }
+
+    // --- generation
+
+    private Written write(Path file, FraudCase caze, String type, int version, String actor, String narrative) throws IOException {
+        Aggregates agg = new Aggregates();
+        Sink sink = new Sink(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file)), 1 << 16));
+        try (JsonGenerator g = om.getFactory().createGenerator(sink).useDefaultPrettyPrinter()) {
+            g.writeStartObject();
+
+            g.writeObjectFieldStart("header");
+            g.writeStringField("reportType", type);
+            g.writeNumberField("version", version);
+            g.writeStringField("generatedAt", Instant.now().toString());
+            g.writeStringField("generatedBy", actor);
+            g.writeEndObject();
+
+            g.writeObjectFieldStart("subject");
+            g.writeStringField("customerNo", caze.getCustomerNo());
+            g.writeNumberField("caseId", caze.getId());
+            g.writeStringField("caseStatus", caze.getStatus());
+            g.writeStringField("priority", caze.getPriority());
+            g.writeStringField("openedAt", caze.getOpenedAt().toString());
+            g.writeEndObject();
+
+            // risk indicators from alerts
+            g.writeArrayFieldStart("riskIndicators");
+            cursor.query(ALERTS, rs -> {
+                String createdAt = rs.getTimestamp(2).toInstant().toString();
+                int hits = Math.max(rs.getInt(6), 1);
+                try {
+                    g.writeStartObject();
+                    g.writeNumberField("alertId", rs.getLong(1));
+                    g.writeStringField("createdAt", createdAt);
+                    g.writeStringField("type", rs.getString(3));
+                    g.writeStringField("severity", rs.getString(4));
+                    g.writeStringField("ruleId", rs.getString(5));
+                    g.writeNumberField("hitCount", hits);
+                    g.writeEndObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                agg.alert(rs.getString(3), rs.getString(4), hits, createdAt);
+            }, caze.getId());
+            g.writeEndArray();
+
+            // timeline entries (compact)
+            g.writeArrayFieldStart("caseTimeline");
+            cursor.query(TIMELINE, rs -> {
+                try {
+                    g.writeStartObject();
+                    g.writeStringField("time", rs.getTimestamp(1).toInstant().toString());
+                    g.writeStringField("type", rs.getString(2));
+                    g.writeStringField("code", rs.getString(3));
+                    g.writeStringField("actor", rs.getString(4));
+                    g.writeEndObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                agg.event(rs.getString(2));
+            }, caze.getId());
+            g.writeEndArray();
+
+            g.writeObjectFieldStart("evidenceReferences");
+            g.writeNumberField("alertsCount", agg.alerts);
+            g.writeNumberField("timelineEventsCount", agg.events);
+            g.writeNumberField("totalHits", agg.hits);
+            g.writeStringField("firstAlertAt", agg.firstAlertAt);
+            g.writeStringField("lastAlertAt", agg.lastAlertAt);
+            writeCounts(g, "alertsBySeverity", agg.bySeverity);
+            writeCounts(g, "alertsByType", agg.byType);
+            writeCounts(g, "timelineByType", agg.eventsByType);
+            g.writeEndObject();
+
+            g.writeObjectFieldStart("assessment");
+            g.writeStringField("narrative", narrative == null ? "" : narrative);
+            g.writeStringField("recommendation", "Escalate to Compliance review; confirm customer intent; validate counterparties; consider account restrictions if risk persists.");
+            g.writeEndObject();
+
+            g.writeEndObject();
+        } // closes sink, which finishes the gzip stream
+        return new Written(agg.alerts, agg.events, HexFormat.of().formatHex(sink.sha.digest()), sink.bytes);
+    }
+
+    private static void writeCounts(JsonGenerator g, String field, Map<String, Long> counts) throws IOException {
+        g.writeObjectFieldStart(field);
+        for (Map.Entry<String, Long> e : counts.entrySet()) g.writeNumberField(e.getKey(), e.getValue());
+        g.writeEndObject();
+    }
+
+    private record Written(long alerts, long events, String sha256, long jsonBytes) {}
+
+    // one pass over alerts and events; both arrive oldest first
+    private static final class Aggregates {
+        long alerts, events, hits;
+        String firstAlertAt, lastAlertAt;
+        final Map<String, Long> bySeverity = new TreeMap<>();
+        final Map<String, Long> byType = new TreeMap<>();
+        final Map<String, Long> eventsByType = new TreeMap<>();
+
+        void alert(String type, String severity, int hitCount, String createdAt) {
+            alerts++;
+            hits += hitCount;
+            if (firstAlertAt == null) firstAlertAt = createdAt;
+            lastAlertAt = createdAt;
+            bySeverity.merge(String.valueOf(severity), 1L, Long::sum);
+            byType.merge(String.valueOf(type), 1L, Long::sum);
+        }
+
+        void event(String type) {
+            events++;
+            eventsByType.merge(String.valueOf(type), 1L, Long::sum);
+        }
+    }
+
+    // hashes and counts the JSON on its way into the gzip stream
+    private static final class Sink extends FilterOutputStream {
+        final MessageDigest sha;
+        long bytes;
+
+        Sink(OutputStream out) {
+            super(out);
+            try {
+                this.sha = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            sha.update((byte) b);
+            bytes++;
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            sha.update(b, off, len);
+            bytes += len;
+            out.write(b, off, len);
+        }
+    }
 }
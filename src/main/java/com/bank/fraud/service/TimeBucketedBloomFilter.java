@@ -0,0 +1,148 @@
+package com.bank.fraud.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter over a sliding time horizon: {@code buckets} sub-filters of {@code bucketMillis} each.
+ * Adds go to the current bucket, lookups check all live buckets, and a bucket is cleared when the
+ * horizon moves past it. Lock-free for add/contains; rotation is synchronized.
+ */
+public class TimeBucketedBloomFilter {
+
+    private final int buckets;
+    private final long bucketMillis;
+    private final int bitsPerBucket;
+    private final int hashes;
+    private final AtomicLongArray[] bits;
+    private final long[] bucketEpoch; // which time slot each ring slot currently holds
+    private volatile long currentEpoch;
+
+    public TimeBucketedBloomFilter(int buckets, long bucketMillis, int expectedPerBucket, double fpp) {
+        this.buckets = buckets;
+        this.bucketMillis = bucketMillis;
+        // m = -n ln p / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil(-expectedPerBucket * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitsPerBucket = (int) Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+        this.hashes = Math.max(1, (int) Math.round((double) bitsPerBucket / expectedPerBucket * Math.log(2)));
+        this.bits = new AtomicLongArray[buckets];
+        this.bucketEpoch = new long[buckets];
+        long now = System.currentTimeMillis() / bucketMillis;
+        for (int i = 0; i < buckets; i++) {
+            bits[i] = new AtomicLongArray((bitsPerBucket + 63) / 64);
+            bucketEpoch[i] = -1;
+        }
+        this.currentEpoch = now;
+        bucketEpoch[(int) (now % buckets)] = now;
+    }
+
+    public void add(String key) {
+        long epoch = rotate();
+        set(bits[(int) (epoch % buckets)], key);
+    }
+
+    private void set(AtomicLongArray b, String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashes; i++) {
+            int bit = index(h1 + i * h2);
+            int word = bit >>> 6;
+            long mask = 1L << (bit & 63);
+            long cur;
+            do {
+                cur = b.get(word);
+                if ((cur & mask) != 0) break;
+            } while (!b.compareAndSet(word, cur, cur | mask));
+        }
+    }
+
+    /**
+     * Adds a key seen at {@code atMillis} to the bucket of that time, e.g. when warming from a store
+     * that kept the times; ignored if already outside the horizon, future times go to the current
+     * bucket. Keeps the bucket load at its design size, where adding everything to the current
+     * bucket would saturate it.
+     */
+    public void add(String key, long atMillis) {
+        long now = rotate();
+        long epoch = Math.min(atMillis / bucketMillis, now);
+        if (epoch <= now - buckets) return;
+        int slot = (int) (epoch % buckets);
+        if (bucketEpoch[slot] != epoch) {
+            synchronized (this) {
+                // a slot of the horizon holds its own epoch, an expired one or nothing
+                if (bucketEpoch[slot] < epoch) {
+                    clear(bits[slot]);
+                    bucketEpoch[slot] = epoch;
+                }
+            }
+        }
+        set(bits[slot], key);
+    }
+
+    public boolean mightContain(String key) {
+        rotate();
+        long h1 = hash(key);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L);
+        for (int s = 0; s < buckets; s++) {
+            if (bucketEpoch[s] < 0) continue;
+            AtomicLongArray b = bits[s];
+            boolean all = true;
+            for (int i = 0; i < hashes && all; i++) {
+                int bit = index(h1 + i * h2);
+                all = (b.get(bit >>> 6) & (1L << (bit & 63))) != 0;
+            }
+            if (all) return true;
+        }
+        return false;
+    }
+
+    private long rotate() {
+        long now = System.currentTimeMillis() / bucketMillis;
+        if (now == currentEpoch) return now;
+        synchronized (this) {
+            if (now != currentEpoch) {
+                // clear every slot that now falls outside the horizon, then claim the current one
+                for (int s = 0; s < buckets; s++) {
+                    if (bucketEpoch[s] >= 0 && bucketEpoch[s] <= now - buckets) {
+                        clear(bits[s]);
+                        bucketEpoch[s] = -1;
+                    }
+                }
+                int slot = (int) (now % buckets);
+                if (bucketEpoch[slot] != now) {
+                    clear(bits[slot]);
+                    bucketEpoch[slot] = now;
+                }
+                currentEpoch = now;
+            }
+        }
+        return now;
+    }
+
+    private int index(long h) {
+        return (int) Math.floorMod(h, (long) bitsPerBucket);
+    }
+
+    private static void clear(AtomicLongArray a) {
+        for (int i = 0; i < a.length(); i++) a.set(i, 0L);
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, finalised with murmur3's fmix64
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte c : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= c;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -1,73 +1,329 @@
 package com.bank.fraud.service;
 
 import com.bank.fraud.domain.TransactionEvent;
+import com.bank.fraud.policy.PolicyEngine;
+import com.bank.fraud.policy.PolicyModels.VelocityRule;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Velocity limits from the policy's velocityRules (or the single app.velocity.* rule when the
+ * policy defines none). Every rule is a sliding window over one dimension of the event.
+ * <p>
+ * Window keys are hash-tagged by the entity the dimension belongs to ({@code vel:{customerNo}:...}
+ * for CUSTOMER / CUSTOMER_CHANNEL, {@code vel:{iban}:...} for TO_IBAN / FROM_IBAN), so every
+ * script call touches a single hash slot, as Redis Cluster requires. The rules of an event are
+ * updated in one script call per slot (typically one for the customer, one per IBAN), all
+ * pipelined into one round trip: adding a rule on an existing dimension adds no call.
+ * <p>
+ * Counting is idempotent per eventId: each call also sets the marker {@code vel-ev:{tag}:<eventId>}
+ * in the same script, and an event whose marker exists is checked against its windows without
+ * being added again. The pipeline calls this before its database transaction, so an event
+ * redelivered after a rollback or crash is not counted twice.
+ */
 @Service
 public class VelocityService {
 
+    /**
+     * Sliding window made of fixed time buckets, one hash per (rule, dimension value):
+     * fields {@code c:<bucket>} / {@code s:<bucket>} hold count / amount of that bucket.
+     * KEYS: the event marker when ARGV[3] is 1, then one window hash per rule. ARGV: amountCents,
+     * nowEpochSeconds, marked (1 / 0), then bucketSeconds, windowSeconds for each window. Unless the
+     * marker already existed, adds the event to the current bucket of each window (the marker lives
+     * as long as the longest window); drops buckets older than the window and returns count, sum
+     * over the live ones (flat list).
+     * At most 2 * window/bucket fields per key, whatever the rate.
+     * The keys of one call share a hash tag (same slot).
+     */
+    private static final String REGISTER_SCRIPT = """
+            local now = tonumber(ARGV[2])
+            local first = tonumber(ARGV[3])
+            local n = #KEYS - first
+            local fresh = true
+            if first == 1 then
+              local ttl = 1
+              for k = 1, n do
+                ttl = math.max(ttl, tonumber(ARGV[2 + 2 * k]) + tonumber(ARGV[3 + 2 * k]))
+              end
+              fresh = redis.call('SET', KEYS[1], '1', 'NX', 'EX', ttl) ~= false
+            end
+            local out = {}
+            for k = 1, n do
+              local key = KEYS[first + k]
+              local bucketSeconds = tonumber(ARGV[2 + 2 * k])
+              local windowSeconds = tonumber(ARGV[3 + 2 * k])
+              local bucket = math.floor(now / bucketSeconds)
+              local oldest = bucket - math.ceil(windowSeconds / bucketSeconds) + 1
+              if fresh then
+                redis.call('HINCRBY', key, 'c:' .. bucket, 1)
+                redis.call('HINCRBY', key, 's:' .. bucket, ARGV[1])
+              end
+              local cnt, sum = 0, 0
+              local fields = redis.call('HGETALL', key)
+              for i = 1, #fields, 2 do
+                local name = fields[i]
+                if tonumber(string.sub(name, 3)) < oldest then
+                  redis.call('HDEL', key, name)
+                elseif string.sub(name, 1, 1) == 'c' then
+                  cnt = cnt + tonumber(fields[i + 1])
+                else
+                  sum = sum + tonumber(fields[i + 1])
+                end
+              end
+              redis.call('EXPIRE', key, windowSeconds + bucketSeconds)
+              out[2 * k - 1] = cnt
+              out[2 * k] = sum
+            end
+            return out
+            """;
+
     private final JedisPool pool;
-    private final int windowSeconds;
-    private final int maxTxCount;
-    private final long maxTotalAmountCents;
+    private final PolicyEngine policyEngine;
+    private final List<VelocityRule> defaultRules;
+
+    private volatile String scriptSha;
 
     public VelocityService(
             JedisPool pool,
+            PolicyEngine policyEngine,
             @Value("${app.velocity.windowSeconds}") int windowSeconds,
+            @Value("${app.velocity.bucketSeconds}") int bucketSeconds,
             @Value("${app.velocity.maxTxCount}") int maxTxCount,
             @Value("${app.velocity.maxTotalAmountCents}") long maxTotalAmountCents
     ) {
+        if (bucketSeconds <= 0 || bucketSeconds > windowSeconds) {
+            throw new IllegalArgumentException("app.velocity.bucketSeconds must be in 1.." + windowSeconds);
+        }
         this.pool = pool;
-        this.windowSeconds = windowSeconds;
-        this.maxTxCount = maxTxCount;
-        this.maxTotalAmountCents = maxTotalAmountCents;
+        this.policyEngine = policyEngine;
+
+        VelocityRule legacy = new VelocityRule();
+        legacy.id = "velocity_rule_v1";
+        legacy.dimension = "CUSTOMER";
+        legacy.windowSeconds = windowSeconds;
+        legacy.bucketSeconds = bucketSeconds;
+        legacy.maxTxCount = maxTxCount;
+        legacy.maxTotalAmountCents = maxTotalAmountCents;
+        legacy.severity = "HIGH";
+        legacy.action = "BLOCK_CREDIT";
+        this.defaultRules = List.of(legacy);
     }
 
     /**
-     * Returns velocity verdict:
-     * - count in window
-     * - sum amount in window
-     * - violated boolean
+     * Returns velocity verdict: count / amount of every rule window the event falls into,
+     * and which of them tripped. One atomic script call per hash slot, a single round trip.
      */
     public Verdict registerAndCheck(TransactionEvent ev) {
-        String keyCount = "vel:cnt:" + ev.customerNo();
-        String keySum = "vel:sum:" + ev.customerNo();
+        Call call = call(ev);
+        if (call.slots().isEmpty()) return new Verdict(List.of());
+        if (call.slots().size() > 1) return registerAndCheckAll(List.of(ev)).get(0);
+
+        Slot slot = call.slots().get(0);
+        try (Jedis j = pool.getResource()) {
+            Object res;
+            try {
+                res = j.evalsha(sha(j), slot.keys(), slot.args());
+            } catch (JedisNoScriptException e) {
+                // script cache was flushed (restart / SCRIPT FLUSH): load again and retry once
+                res = j.evalsha(reloadSha(j), slot.keys(), slot.args());
+            }
+            return call.verdict(List.of(res));
+        }
+    }
+
+    /**
+     * Batch variant of {@link #registerAndCheck}: one script call per event and slot, all
+     * pipelined into a single network flush. Result is aligned with the input.
+     */
+    public List<Verdict> registerAndCheckAll(List<TransactionEvent> events) {
+        List<Call> calls = new ArrayList<>(events.size());
+        for (TransactionEvent ev : events) calls.add(call(ev));
 
         try (Jedis j = pool.getResource()) {
-            long cnt = j.incr(keyCount);
-            if (cnt == 1) j.expire(keyCount, windowSeconds);
+            try {
+                return pipelined(j, sha(j), calls);
+            } catch (JedisNoScriptException e) {
+                // NOSCRIPT fails every call of the flush, so nothing was counted yet
+                return pipelined(j, reloadSha(j), calls);
+            }
+        }
+    }
+
+    private List<Verdict> pipelined(Jedis j, String sha, List<Call> calls) {
+        Pipeline p = j.pipelined();
+        List<List<Response<Object>>> responses = new ArrayList<>(calls.size());
+        for (Call c : calls) {
+            List<Response<Object>> rs = new ArrayList<>(c.slots().size());
+            for (Slot slot : c.slots()) rs.add(p.evalsha(sha, slot.keys(), slot.args()));
+            responses.add(rs);
+        }
+        p.sync();
+
+        List<Verdict> out = new ArrayList<>(calls.size());
+        for (int i = 0; i < calls.size(); i++) {
+            List<Object> results = new ArrayList<>(responses.get(i).size());
+            for (Response<Object> r : responses.get(i)) results.add(r.get());
+            out.add(calls.get(i).verdict(results));
+        }
+        return out;
+    }
+
+    private Call call(TransactionEvent ev) {
+        List<VelocityRule> rules = policyEngine.velocityRules();
+        if (rules.isEmpty()) rules = defaultRules;
+
+        List<VelocityRule> applied = new ArrayList<>(rules.size());
+        List<String> values = new ArrayList<>(rules.size());
+        Map<String, Slot> slots = new LinkedHashMap<>();
+        String amount = String.valueOf(ev.amountCents());
+        // bucket boundaries follow this instance's clock; skew between instances only shifts them
+        String now = String.valueOf(System.currentTimeMillis() / 1000);
+
+        for (VelocityRule r : rules) {
+            String value = dimensionValue(r.dimension, ev);
+            if (value == null || r.bucketSeconds <= 0 || r.bucketSeconds > r.windowSeconds) continue;
+            String tag = hashTag(r.dimension, ev);
+            Slot slot = slots.computeIfAbsent(tag, t -> new Slot(t, ev.eventId(), amount, now));
+            slot.windows().add(applied.size());
+            slot.keys().add("vel:{" + tag + "}:" + r.id + ":" + value);
+            slot.args().add(String.valueOf(r.bucketSeconds));
+            slot.args().add(String.valueOf(r.windowSeconds));
+            applied.add(r);
+            values.add(value);
+        }
+        return new Call(applied, values, List.copyOf(slots.values()));
+    }
 
-            long sum = j.incrBy(keySum, ev.amountCents());
-            if (sum == ev.amountCents()) j.expire(keySum, windowSeconds);
+    private static String dimensionValue(String dimension, TransactionEvent ev) {
+        if (dimension == null) return null;
+        return switch (dimension) {
+            case "CUSTOMER" -> ev.customerNo();
+            case "TO_IBAN" -> ev.toIban();
+            case "FROM_IBAN" -> ev.fromIban();
+            case "CUSTOMER_CHANNEL" -> ev.customerNo() == null || ev.channel() == null
+                    ? null : ev.customerNo() + "|" + ev.channel();
+            default -> null;
+        };
+    }
+
+    /**
+     * Entity whose hash slot holds the dimension's windows: the customer for CUSTOMER and
+     * CUSTOMER_CHANNEL, the IBAN for TO_IBAN / FROM_IBAN (non-null whenever the value is).
+     */
+    private static String hashTag(String dimension, TransactionEvent ev) {
+        return switch (dimension) {
+            case "TO_IBAN" -> ev.toIban();
+            case "FROM_IBAN" -> ev.fromIban();
+            default -> ev.customerNo();
+        };
+    }
+
+    private String sha(Jedis j) {
+        String s = scriptSha;
+        return s != null ? s : reloadSha(j);
+    }
+
+    private String reloadSha(Jedis j) {
+        String s = j.scriptLoad(REGISTER_SCRIPT);
+        scriptSha = s;
+        return s;
+    }
+
+    /**
+     * The rules applied to one event and their script calls, one per hash slot.
+     */
+    private record Call(List<VelocityRule> rules, List<String> values, List<Slot> slots) {
+        /**
+         * @param results script result of each slot, in slot order
+         */
+        Verdict verdict(List<Object> results) {
+            Window[] windows = new Window[rules.size()];
+            for (int s = 0; s < slots.size(); s++) {
+                List<Integer> indexes = slots.get(s).windows();
+                List<?> flat = (List<?>) results.get(s);
+                for (int k = 0; k < indexes.size(); k++) {
+                    int w = indexes.get(k);
+                    windows[w] = window(rules.get(w), values.get(w), (Long) flat.get(2 * k), (Long) flat.get(2 * k + 1));
+                }
+            }
+            return new Verdict(List.of(windows));
+        }
 
-            boolean violated = (cnt >= maxTxCount) || (sum >= maxTotalAmountCents);
+        private static Window window(VelocityRule r, String value, long cnt, long sum) {
+            boolean violated = (r.maxTxCount != null && cnt >= r.maxTxCount)
+                    || (r.maxTotalAmountCents != null && sum >= r.maxTotalAmountCents);
 
-            return new Verdict(cnt, sum, violated, windowSeconds, maxTxCount, maxTotalAmountCents);
+            return new Window(r.id, r.dimension, value, cnt, sum, violated,
+                    r.windowSeconds, r.bucketSeconds, r.maxTxCount, r.maxTotalAmountCents,
+                    r.severity == null ? "HIGH" : r.severity,
+                    r.action == null ? "ALERT_ONLY" : r.action);
         }
     }
 
-    public record Verdict(
+    /**
+     * One script call: the event marker and window keys sharing a hash tag, and the index of each
+     * window in the event's verdict.
+     */
+    private record Slot(List<Integer> windows, List<String> keys, List<String> args) {
+        Slot(String tag, String eventId, String amountCents, String nowEpochSeconds) {
+            this(new ArrayList<>(),
+                    eventId == null ? new ArrayList<>() : new ArrayList<>(List.of("vel-ev:{" + tag + "}:" + eventId)),
+                    new ArrayList<>(List.of(amountCents, nowEpochSeconds, eventId == null ? "0" : "1")));
+        }
+    }
+
+    public record Verdict(List<Window> windows) {
+        public boolean violated() {
+            for (Window w : windows) if (w.violated()) return true;
+            return false;
+        }
+
+        public List<Window> tripped() {
+            return windows.stream().filter(Window::violated).toList();
+        }
+    }
+
+    /**
+     * One rule's window for the event; ruleId / severity / action say what tripped.
+     */
+    public record Window(
+            String ruleId,
+            String dimension,
+            String dimensionValue,
             long countInWindow,
             long sumAmountCentsInWindow,
             boolean violated,
             int windowSeconds,
-            int maxTxCount,
-            long maxTotalAmountCents
+            int bucketSeconds,
+            Integer maxTxCount,
+            Long maxTotalAmountCents,
+            String severity,
+            String action
     ) {
         public Map<String, Object> toMap() {
-            return Map.of(
-                    "countInWindow", countInWindow,
-                    "sumAmountCentsInWindow", sumAmountCentsInWindow,
-                    "violated", violated,
-                    "windowSeconds", windowSeconds,
-                    "maxTxCount", maxTxCount,
-                    "maxTotalAmountCents", maxTotalAmountCents
-            );
+            Map<String, Object> m = new HashMap<>();
+            m.put("ruleId", ruleId);
+            m.put("dimension", dimension);
+            m.put("dimensionValue", dimensionValue);
+            m.put("countInWindow", countInWindow);
+            m.put("sumAmountCentsInWindow", sumAmountCentsInWindow);
+            m.put("violated", violated);
+            m.put("windowSeconds", windowSeconds);
+            m.put("bucketSeconds", bucketSeconds);
+            m.put("maxTxCount", maxTxCount);
+            m.put("maxTotalAmountCents", maxTotalAmountCents);
+            return m;
         }
     }
 }
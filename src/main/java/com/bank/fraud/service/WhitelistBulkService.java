@@ -0,0 +1,377 @@
+package com.bank.fraud.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk load / dump of whitelist_entries.
+ * <p>
+ * Import streams the request body (CSV with header, or NDJSON), validates each row as it is read and
+ * pipes the valid ones through COPY into a temp staging table, then replaces matching (type, value)
+ * entries in two set-based statements, all in one transaction. Same replace semantics as
+ * {@link WhitelistService#upsert}; when a (type, value) occurs twice in the input the last row wins.
+ * Memory use does not depend on the input size. One audit record summarises the import.
+ * <p>
+ * Export streams COPY TO STDOUT (CSV) or a server-side cursor (NDJSON) straight into the response.
+ */
+@Service
+public class WhitelistBulkService {
+
+    private static final int MAX_ERRORS = 100;
+    private static final int FLUSH_CHARS = 64 * 1024;
+
+    private static final String STAGING = """
+            CREATE TEMP TABLE whitelist_import (
+              line bigint, type varchar(32), value varchar(128), hard_bypass boolean, reason varchar(256),
+              created_by varchar(64), ticket_ref varchar(64), expires_at timestamptz
+            ) ON COMMIT DROP""";
+    private static final String COPY_IN = "COPY whitelist_import FROM STDIN";
+    private static final String DELETE_REPLACED = """
+            DELETE FROM whitelist_entries w
+            USING (SELECT DISTINCT type, value FROM whitelist_import) s
+            WHERE w.type = s.type AND w.value = s.value""";
+    private static final String INSERT_NEW = """
+            INSERT INTO whitelist_entries (type, value, hard_bypass, reason, created_by, ticket_ref, expires_at, created_at)
+            SELECT DISTINCT ON (type, value) type, value, hard_bypass, reason, created_by, ticket_ref, expires_at, now()
+            FROM whitelist_import
+            ORDER BY type, value, line DESC""";
+
+    // CSV header uses the import column names and the cells the import formats (true/false, ISO-8601
+    // instants; COPY itself would write t/f and '2026-02-01 00:00:00+00'), so an export re-imports as is
+    static final String EXPORT_INSTANT = "'YYYY-MM-DD\"T\"HH24:MI:SS.US\"Z\"'";
+    private static final String EXPORT_COLUMNS = "type, value, hard_bypass::text AS \"hardBypass\", reason, "
+            + "created_by AS \"createdBy\", ticket_ref AS \"ticketRef\", "
+            + "to_char(expires_at AT TIME ZONE 'UTC', " + EXPORT_INSTANT + ") AS \"expiresAt\", "
+            + "to_char(created_at AT TIME ZONE 'UTC', " + EXPORT_INSTANT + ") AS \"createdAt\"";
+    private static final String EXPORT_CSV =
+            "COPY (SELECT " + EXPORT_COLUMNS + " FROM whitelist_entries ORDER BY id) TO STDOUT WITH (FORMAT csv, HEADER)";
+    private static final String EXPORT_QUERY =
+            "SELECT type, value, hard_bypass, reason, created_by, ticket_ref, expires_at, created_at FROM whitelist_entries ORDER BY id";
+
+    // accepted column / property names -> canonical
+    private static final Map<String, String> COLUMNS = Map.ofEntries(
+            Map.entry("type", "type"), Map.entry("value", "value"),
+            Map.entry("hardBypass", "hardBypass"), Map.entry("hard_bypass", "hardBypass"),
+            Map.entry("reason", "reason"),
+            Map.entry("createdBy", "createdBy"), Map.entry("created_by", "createdBy"),
+            Map.entry("ticketRef", "ticketRef"), Map.entry("ticket_ref", "ticketRef"),
+            Map.entry("expiresAt", "expiresAt"), Map.entry("expires_at", "expiresAt"),
+            Map.entry("createdAt", "createdAt"), Map.entry("created_at", "createdAt")
+    );
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final JdbcTemplate jdbc;
+    private final JdbcTemplate cursor;
+    private final TransactionTemplate tx;
+    private final TransactionTemplate readOnlyTx;
+    private final WhitelistSnapshot snapshot;
+    private final AuditService audit;
+
+    public WhitelistBulkService(JdbcTemplate jdbc, DataSource dataSource, PlatformTransactionManager txManager,
+                                WhitelistSnapshot snapshot, AuditService audit) {
+        this.jdbc = jdbc;
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(1000); // pgjdbc streams with a cursor inside a transaction
+        this.tx = new TransactionTemplate(txManager);
+        this.readOnlyTx = new TransactionTemplate(txManager);
+        this.readOnlyTx.setReadOnly(true);
+        this.snapshot = snapshot;
+        this.audit = audit;
+    }
+
+    /**
+     * @param format csv | ndjson
+     * @param strict true: any invalid row rolls the whole import back; false: invalid rows are skipped
+     */
+    public Result importEntries(InputStream body, String format, String actor, boolean strict) {
+        boolean ndjson = "ndjson".equalsIgnoreCase(format);
+        Result result = tx.execute(status -> jdbc.execute((ConnectionCallback<Result>) con -> {
+            Result r = load(con, body, ndjson, actor, strict);
+            if (!r.committed()) {
+                status.setRollbackOnly();
+                return r;
+            }
+            if (r.inserted() + r.replaced() > 0) snapshot.changedAll();
+            return r;
+        }));
+
+        audit.write(actor, "BULK_IMPORT_WHITELIST", "WHITELIST", format,
+                "{\"rows\":" + result.rows() + ",\"inserted\":" + result.inserted() + ",\"replaced\":" + result.replaced()
+                        + ",\"rejected\":" + result.rejected() + ",\"committed\":" + result.committed() + "}");
+        return result;
+    }
+
+    private Result load(Connection con, InputStream body, boolean ndjson, String actor, boolean strict) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            st.execute(STAGING);
+        }
+        CopyIn copy = con.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_IN);
+
+        long rows = 0, rejected = 0;
+        List<String> errors = new ArrayList<>();
+        StringBuilder out = new StringBuilder(FLUSH_CHARS + 1024);
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            String line;
+            long lineNo = 0;
+            Map<String, Integer> header = null;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) continue;
+                if (!ndjson && header == null) {
+                    header = header(line);
+                    continue;
+                }
+                rows++;
+                Map<String, String> fields;
+                String error;
+                try {
+                    fields = ndjson ? ndjsonFields(line) : csvFields(line, header);
+                    error = validate(fields);
+                } catch (IllegalArgumentException | IOException e) {
+                    fields = null;
+                    error = e.getMessage();
+                }
+                if (error != null) {
+                    rejected++;
+                    if (errors.size() < MAX_ERRORS) errors.add("line " + lineNo + ": " + error);
+                    if (strict) {
+                        copy.cancelCopy();
+                        return new Result(false, rows, 0, 0, rejected, errors);
+                    }
+                    continue;
+                }
+                appendCopyRow(out, lineNo, fields, actor);
+                if (out.length() >= FLUSH_CHARS) flush(copy, out);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // unreadable body or bad CSV header: nothing is loaded
+            if (copy.isActive()) copy.cancelCopy();
+            errors.add(e.getMessage());
+            return new Result(false, rows, 0, 0, rejected, errors);
+        }
+        flush(copy, out);
+        copy.endCopy();
+
+        try (Statement st = con.createStatement()) {
+            int replaced = st.executeUpdate(DELETE_REPLACED);
+            int inserted = st.executeUpdate(INSERT_NEW);
+            return new Result(true, rows, inserted - replaced, replaced, rejected, errors);
+        }
+    }
+
+    public void exportCsv(OutputStream out) {
+        jdbc.execute((ConnectionCallback<Long>) con -> {
+            try {
+                return con.unwrap(PGConnection.class).getCopyAPI().copyOut(EXPORT_CSV, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    public void exportNdjson(OutputStream out) {
+        readOnlyTx.executeWithoutResult(s -> {
+            try (JsonGenerator g = om.getFactory().createGenerator(out).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                g.setRootValueSeparator(null); // lines end with '\n' instead of being separated by ' '
+                cursor.query(EXPORT_QUERY, rs -> {
+                    try {
+                        g.writeStartObject();
+                        g.writeStringField("type", rs.getString(1));
+                        g.writeStringField("value", rs.getString(2));
+                        g.writeBooleanField("hardBypass", rs.getBoolean(3));
+                        g.writeStringField("reason", rs.getString(4));
+                        g.writeStringField("createdBy", rs.getString(5));
+                        g.writeStringField("ticketRef", rs.getString(6));
+                        g.writeStringField("expiresAt", instant(rs.getTimestamp(7)));
+                        g.writeStringField("createdAt", instant(rs.getTimestamp(8)));
+                        g.writeEndObject();
+                        g.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // --- parsing / validation
+
+    static Map<String, Integer> header(String line) {
+        if (line.startsWith("\uFEFF")) line = line.substring(1); // spreadsheet BOM
+        List<String> names = splitCsv(line);
+        Map<String, Integer> h = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            String c = COLUMNS.get(names.get(i).trim());
+            if (c == null) throw new IllegalArgumentException("unknown CSV column '" + names.get(i) + "'");
+            h.put(c, i);
+        }
+        if (!h.containsKey("type") || !h.containsKey("value") || !h.containsKey("reason")) {
+            throw new IllegalArgumentException("CSV header needs type, value and reason columns");
+        }
+        return h;
+    }
+
+    static Map<String, String> csvFields(String line, Map<String, Integer> header) {
+        List<String> cells = splitCsv(line);
+        Map<String, String> f = new HashMap<>();
+        header.forEach((name, i) -> f.put(name, i < cells.size() ? emptyToNull(cells.get(i)) : null));
+        return f;
+    }
+
+    private Map<String, String> ndjsonFields(String line) throws IOException {
+        JsonNode n = om.readTree(line);
+        if (n == null || !n.isObject()) throw new IllegalArgumentException("not a JSON object");
+        Map<String, String> f = new HashMap<>();
+        var it = n.fields();
+        while (it.hasNext()) {
+            var e = it.next();
+            String c = COLUMNS.get(e.getKey());
+            if (c == null) throw new IllegalArgumentException("unknown property '" + e.getKey() + "'");
+            f.put(c, e.getValue().isNull() ? null : emptyToNull(e.getValue().asText()));
+        }
+        return f;
+    }
+
+    /**
+     * Same constraints as the whitelist_entries columns, plus the pattern type checks.
+     */
+    static String validate(Map<String, String> f) {
+        String type = f.get("type");
+        String value = f.get("value");
+        if (type == null || !WhitelistIndex.TYPES.contains(type)) return "unknown type '" + type + "'";
+        if (value == null || value.length() > 128) return "value is required (max 128 chars)";
+        if (f.get("reason") == null || f.get("reason").length() > 256) return "reason is required (max 256 chars)";
+        if (f.get("createdBy") != null && f.get("createdBy").length() > 64) return "createdBy max 64 chars";
+        if (f.get("ticketRef") != null && f.get("ticketRef").length() > 64) return "ticketRef max 64 chars";
+        String hb = f.get("hardBypass");
+        if (hb != null && !hb.equalsIgnoreCase("true") && !hb.equalsIgnoreCase("false")) return "hardBypass must be true or false";
+        if (f.get("expiresAt") != null) {
+            try {
+                Instant.parse(f.get("expiresAt"));
+            } catch (DateTimeParseException e) {
+                return "expiresAt must be an ISO-8601 instant";
+            }
+        }
+        try {
+            WhitelistIndex.validate(type, value);
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        return null;
+    }
+
+    /**
+     * RFC 4180 cells of one line (quoted cells may contain commas and doubled quotes, not line breaks).
+     */
+    private static List<String> splitCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("unterminated quoted cell");
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    // --- COPY text format: tab separated, \N = null, backslash escapes
+
+    static void appendCopyRow(StringBuilder out, long line, Map<String, String> f, String actor) {
+        out.append(line);
+        copyField(out, f.get("type"));
+        copyField(out, f.get("value"));
+        String hb = f.get("hardBypass");
+        copyField(out, hb == null || hb.equalsIgnoreCase("true") ? "t" : "f");
+        copyField(out, f.get("reason"));
+        copyField(out, f.get("createdBy") == null ? actor : f.get("createdBy"));
+        copyField(out, f.get("ticketRef"));
+        copyField(out, f.get("expiresAt"));
+        out.append('\n');
+    }
+
+    private static void copyField(StringBuilder out, String v) {
+        out.append('\t');
+        if (v == null) {
+            out.append("\\N");
+            return;
+        }
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '\\' -> out.append("\\\\");
+                case '\t' -> out.append("\\t");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                default -> out.append(c);
+            }
+        }
+    }
+
+    private static void flush(CopyIn copy, StringBuilder out) throws SQLException {
+        if (out.isEmpty()) return;
+        byte[] b = out.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(b, 0, b.length);
+        out.setLength(0);
+    }
+
+    private static String emptyToNull(String s) {
+        return s == null || s.isEmpty() ? null : s;
+    }
+
+    private static String instant(Timestamp t) {
+        return t == null ? null : t.toInstant().toString();
+    }
+
+    /**
+     * inserted = new (type, value) pairs, replaced = existing entries overwritten, rejected = invalid rows
+     * (errors holds the first 100). committed=false means nothing was changed.
+     */
+    public record Result(boolean committed, long rows, long inserted, long replaced, long rejected, List<String> errors) {}
+}
@@ -0,0 +1,310 @@
+package com.bank.fraud.service;
+
+import com.bank.fraud.domain.WhitelistEntry;
+import com.bank.fraud.policy.PrefixTrie;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Immutable whitelist lookup table: type -> value -> entry, plus compiled matchers for the
+ * pattern types:
+ * <ul>
+ *   <li>IBAN_PREFIX → prefix trie, longest matching prefix wins</li>
+ *   <li>MCC_RANGE ("5000-5999") → code table over the 0000..9999 space, narrowest range wins</li>
+ *   <li>CUSTOMER_PATTERN (glob, * and ?) → trie on the literal part before the first wildcard,
+ *       then a glob check of those candidates only; longest literal prefix wins</li>
+ * </ul>
+ * Changes produce a new index (only the changed type is copied / recompiled), so readers never lock.
+ * Expiry is checked on lookup, an entry simply stops matching when it expires.
+ */
+public final class WhitelistIndex {
+
+    public static final String IBAN_PREFIX = "IBAN_PREFIX";
+    public static final String MCC_RANGE = "MCC_RANGE";
+    public static final String CUSTOMER_PATTERN = "CUSTOMER_PATTERN";
+
+    public static final Set<String> TYPES = Set.of(
+            "CUSTOMER", CUSTOMER_PATTERN, "IBAN", IBAN_PREFIX, "RULE_ID", "MCC", MCC_RANGE);
+
+    private static final Logger log = LoggerFactory.getLogger(WhitelistIndex.class);
+
+    static final WhitelistIndex EMPTY = new WhitelistIndex(Map.of());
+
+    private final Map<String, Map<String, Entry>> byType;
+    private final PrefixTrie<Entry> ibanPrefixes;
+    private final MccRanges mccRanges;
+    private final PrefixTrie<Pattern> customerPatterns;
+
+    private WhitelistIndex(Map<String, Map<String, Entry>> byType) {
+        this(byType, null, null);
+    }
+
+    // reuses the matchers of prev for every pattern type other than changedType
+    private WhitelistIndex(Map<String, Map<String, Entry>> byType, WhitelistIndex prev, String changedType) {
+        this.byType = byType;
+        boolean all = prev == null;
+        this.ibanPrefixes = all || IBAN_PREFIX.equals(changedType) ? ibanPrefixes(values(IBAN_PREFIX)) : prev.ibanPrefixes;
+        this.mccRanges = all || MCC_RANGE.equals(changedType) ? MccRanges.of(values(MCC_RANGE)) : prev.mccRanges;
+        this.customerPatterns = all || CUSTOMER_PATTERN.equals(changedType)
+                ? customerPatterns(values(CUSTOMER_PATTERN)) : prev.customerPatterns;
+    }
+
+    static WhitelistIndex of(Collection<WhitelistEntry> entries) {
+        long now = System.currentTimeMillis();
+        Map<String, Map<String, Entry>> m = new HashMap<>();
+        for (WhitelistEntry e : entries) {
+            Entry x = Entry.of(e);
+            if (x.expiredAt(now)) continue;
+            m.computeIfAbsent(x.type(), t -> new HashMap<>()).put(x.value(), x);
+        }
+        return new WhitelistIndex(m);
+    }
+
+    /**
+     * Rejects values the pattern types cannot compile; other types take any value.
+     */
+    static void validate(String type, String value) {
+        switch (type) {
+            case IBAN_PREFIX -> {
+                if (value.isBlank()) throw new IllegalArgumentException("IBAN_PREFIX needs a non-empty prefix");
+            }
+            case MCC_RANGE -> {
+                if (MccRanges.parse(value) == null) {
+                    throw new IllegalArgumentException("MCC_RANGE must look like 5000-5999 (codes 0000..9999): " + value);
+                }
+            }
+            case CUSTOMER_PATTERN -> {
+                if (value.isBlank()) throw new IllegalArgumentException("CUSTOMER_PATTERN needs a pattern");
+            }
+            default -> { }
+        }
+    }
+
+    /**
+     * Active (non-expired) entry of {@code type} matching {@code input}, or null.
+     * Exact types look the value up; pattern types run their matcher.
+     */
+    public Entry find(String type, String input, long nowMillis) {
+        if (input == null) return null;
+        return switch (type) {
+            case IBAN_PREFIX -> longest(ibanPrefixes, input, nowMillis);
+            case MCC_RANGE -> mccRanges.find(input, nowMillis);
+            case CUSTOMER_PATTERN -> matchPattern(input, nowMillis);
+            default -> {
+                Map<String, Entry> values = byType.get(type);
+                Entry e = values == null ? null : values.get(input);
+                yield e == null || e.expiredAt(nowMillis) ? null : e;
+            }
+        };
+    }
+
+    WhitelistIndex with(Entry e) {
+        Map<String, Map<String, Entry>> m = new HashMap<>(byType);
+        Map<String, Entry> values = new HashMap<>(byType.getOrDefault(e.type(), Map.of()));
+        values.put(e.value(), e);
+        m.put(e.type(), values);
+        return new WhitelistIndex(m, this, e.type());
+    }
+
+    WhitelistIndex without(String type, String value) {
+        Map<String, Entry> current = byType.get(type);
+        if (current == null || !current.containsKey(value)) return this;
+        Map<String, Map<String, Entry>> m = new HashMap<>(byType);
+        Map<String, Entry> values = new HashMap<>(current);
+        values.remove(value);
+        m.put(type, values);
+        return new WhitelistIndex(m, this, type);
+    }
+
+    public int size() {
+        int n = 0;
+        for (Map<String, Entry> values : byType.values()) n += values.size();
+        return n;
+    }
+
+    private Collection<Entry> values(String type) {
+        return byType.getOrDefault(type, Map.of()).values();
+    }
+
+    // --- IBAN_PREFIX
+
+    private static PrefixTrie<Entry> ibanPrefixes(Collection<Entry> entries) {
+        PrefixTrie<Entry> t = new PrefixTrie<>();
+        for (Entry e : entries) t.put(e.value(), e);
+        return t;
+    }
+
+    private static Entry longest(PrefixTrie<Entry> trie, String input, long now) {
+        Entry[] best = new Entry[1];
+        trie.forEachPrefixOf(input, e -> {
+            if (!e.expiredAt(now)) best[0] = e; // shortest first, so the last one is the longest
+        });
+        return best[0];
+    }
+
+    // --- CUSTOMER_PATTERN
+
+    private record Pattern(Entry entry, String glob) {}
+
+    private static PrefixTrie<Pattern> customerPatterns(Collection<Entry> entries) {
+        PrefixTrie<Pattern> t = new PrefixTrie<>();
+        for (Entry e : entries) {
+            String glob = e.value();
+            int wildcard = indexOfWildcard(glob);
+            t.put(wildcard < 0 ? glob : glob.substring(0, wildcard), new Pattern(e, glob));
+        }
+        return t;
+    }
+
+    private Entry matchPattern(String input, long now) {
+        Entry[] best = new Entry[1];
+        customerPatterns.forEachPrefixOf(input, p -> {
+            if (!p.entry().expiredAt(now) && glob(p.glob(), input)) best[0] = p.entry();
+        });
+        return best[0];
+    }
+
+    private static int indexOfWildcard(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '*' || c == '?') return i;
+        }
+        return -1;
+    }
+
+    /**
+     * '*' = any run of chars, '?' = one char; linear, backtracks only to the last '*'.
+     */
+    static boolean glob(String pattern, String s) {
+        int p = 0, i = 0, star = -1, mark = 0;
+        while (i < s.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == s.charAt(i))) {
+                p++;
+                i++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                mark = i;
+            } else if (star >= 0) {
+                p = star + 1;
+                i = ++mark;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') p++;
+        return p == pattern.length();
+    }
+
+    // --- MCC_RANGE
+
+    /**
+     * Ranges cut the 0000..9999 code space into elementary segments; each code points to its segment,
+     * whose covering entries are sorted narrowest first.
+     */
+    private static final class MccRanges {
+        private static final int CODES = 10_000;
+        private static final MccRanges NONE = new MccRanges(null, null);
+
+        private final int[] segmentOf;
+        private final Entry[][] segments;
+
+        private MccRanges(int[] segmentOf, Entry[][] segments) {
+            this.segmentOf = segmentOf;
+            this.segments = segments;
+        }
+
+        static MccRanges of(Collection<Entry> entries) {
+            List<int[]> ranges = new ArrayList<>();
+            List<Entry> owners = new ArrayList<>();
+            for (Entry e : entries) {
+                int[] r = parse(e.value());
+                if (r == null) {
+                    log.warn("Ignoring MCC_RANGE whitelist entry {} with invalid value '{}'", e.id(), e.value());
+                    continue;
+                }
+                ranges.add(r);
+                owners.add(e);
+            }
+            if (ranges.isEmpty()) return NONE;
+
+            TreeSet<Integer> cuts = new TreeSet<>();
+            for (int[] r : ranges) {
+                cuts.add(r[0]);
+                cuts.add(r[1] + 1);
+            }
+            Integer[] b = cuts.toArray(new Integer[0]);
+            int[] segmentOf = new int[CODES];
+            Arrays.fill(segmentOf, -1);
+            List<Entry[]> segments = new ArrayList<>();
+            for (int s = 0; s + 1 < b.length; s++) {
+                int lo = b[s], hi = b[s + 1] - 1;
+                List<Integer> covering = new ArrayList<>();
+                for (int k = 0; k < ranges.size(); k++) {
+                    if (ranges.get(k)[0] <= lo && ranges.get(k)[1] >= hi) covering.add(k);
+                }
+                if (covering.isEmpty()) continue;
+                covering.sort(Comparator.comparingInt(k -> ranges.get(k)[1] - ranges.get(k)[0]));
+                Entry[] seg = covering.stream().map(owners::get).toArray(Entry[]::new);
+                Arrays.fill(segmentOf, lo, hi + 1, segments.size());
+                segments.add(seg);
+            }
+            return new MccRanges(segmentOf, segments.toArray(new Entry[0][]));
+        }
+
+        Entry find(String mcc, long now) {
+            if (segmentOf == null) return null;
+            int code = code(mcc);
+            if (code < 0) return null;
+            int s = segmentOf[code];
+            if (s < 0) return null;
+            for (Entry e : segments[s]) {
+                if (!e.expiredAt(now)) return e;
+            }
+            return null;
+        }
+
+        /**
+         * "lo-hi" (or a single code) -> {lo, hi}, null if malformed.
+         */
+        static int[] parse(String value) {
+            int dash = value.indexOf('-');
+            int lo = code(dash < 0 ? value.trim() : value.substring(0, dash).trim());
+            int hi = dash < 0 ? lo : code(value.substring(dash + 1).trim());
+            if (lo < 0 || hi < 0 || lo > hi) return null;
+            return new int[]{lo, hi};
+        }
+
+        // 1..4 digits -> 0..9999, else -1 (no allocation)
+        private static int code(String s) {
+            if (s.isEmpty() || s.length() > 4) return -1;
+            int v = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') return -1;
+                v = v * 10 + (c - '0');
+            }
+            return v;
+        }
+    }
+
+    public record Entry(long id, String type, String value, String reason, boolean hardBypass, long expiresAtMillis) {
+        static Entry of(WhitelistEntry e) {
+            return new Entry(e.getId(), e.getType(), e.getValue(), e.getReason(), e.isHardBypass(),
+                    e.getExpiresAt() == null ? Long.MAX_VALUE : e.getExpiresAt().toEpochMilli());
+        }
+
+        boolean expiredAt(long nowMillis) {
+            return expiresAtMillis < nowMillis;
+        }
+    }
+}
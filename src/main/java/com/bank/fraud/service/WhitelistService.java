@@ -7,7 +7,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.bank.fraud.service.Repositories.*;
 
@@ -15,46 +19,60 @@ import static com.bank.fraud.service.Repositories.*;
 public class WhitelistService {
 
     private final WhitelistRepo repo;
+    private final WhitelistSnapshot snapshot;
     private final AuditService audit;
 
-    public WhitelistService(WhitelistRepo repo, AuditService audit) {
+    public WhitelistService(WhitelistRepo repo, WhitelistSnapshot snapshot, AuditService audit) {
         this.repo = repo;
+        this.snapshot = snapshot;
         this.audit = audit;
     }
 
+    /**
+     * Precedence CUSTOMER > IBAN (destination) > MCC, exact entries before the pattern entries of the
+     * same level; in-memory lookups only (see {@link WhitelistSnapshot}).
+     */
     public Decision evaluate(TransactionEvent ev) {
-        // CUSTOMER exception
-        var customer = repo.findByTypeAndValue("CUSTOMER", ev.customerNo()).orElse(null);
-        if (customer != null && !customer.isExpired()) {
-            return Decision.hard("CUSTOMER", customer.getValue(), customer.getReason(), customer.isHardBypass());
-        }
+        WhitelistIndex idx = snapshot.current();
+        long now = System.currentTimeMillis();
 
-        // IBAN exception (destination)
-        if (ev.toIban() != null) {
-            var iban = repo.findByTypeAndValue("IBAN", ev.toIban()).orElse(null);
-            if (iban != null && !iban.isExpired()) {
-                return Decision.hard("IBAN", iban.getValue(), iban.getReason(), iban.isHardBypass());
-            }
-        }
+        WhitelistIndex.Entry e = idx.find("CUSTOMER", ev.customerNo(), now);
+        if (e == null) e = idx.find(WhitelistIndex.CUSTOMER_PATTERN, ev.customerNo(), now);
+        if (e == null) e = idx.find("IBAN", ev.toIban(), now);
+        if (e == null) e = idx.find(WhitelistIndex.IBAN_PREFIX, ev.toIban(), now);
+        if (e == null) e = idx.find("MCC", ev.mcc(), now);
+        if (e == null) e = idx.find(WhitelistIndex.MCC_RANGE, ev.mcc(), now);
 
-        // MCC exception
-        if (ev.mcc() != null) {
-            var mcc = repo.findByTypeAndValue("MCC", ev.mcc()).orElse(null);
-            if (mcc != null && !mcc.isExpired()) {
-                return Decision.hard("MCC", mcc.getValue(), mcc.getReason(), mcc.isHardBypass());
-            }
-        }
+        return e == null ? Decision.none() : Decision.hard(e.type(), e.value(), e.reason(), e.hardBypass());
+    }
 
-        return Decision.none();
+    /**
+     * Same as {@link #evaluate} for each event; result is aligned with the input list.
+     */
+    public List<Decision> evaluateAll(List<TransactionEvent> events) {
+        List<Decision> out = new ArrayList<>(events.size());
+        for (TransactionEvent ev : events) out.add(evaluate(ev));
+        return out;
     }
 
     public boolean isRuleWhitelisted(PolicyEngine.MatchedRule hit) {
-        var r = repo.findByTypeAndValue("RULE_ID", hit.id()).orElse(null);
-        return r != null && !r.isExpired();
+        return snapshot.current().find("RULE_ID", hit.id(), System.currentTimeMillis()) != null;
+    }
+
+    public Set<String> whitelistedRuleIds(Collection<String> ruleIds) {
+        if (ruleIds.isEmpty()) return Set.of();
+        WhitelistIndex idx = snapshot.current();
+        long now = System.currentTimeMillis();
+        Set<String> out = new HashSet<>();
+        for (String id : ruleIds) {
+            if (idx.find("RULE_ID", id, now) != null) out.add(id);
+        }
+        return out;
     }
 
     @Transactional
     public WhitelistEntry upsert(String type, String value, boolean hardBypass, String reason, String createdBy, String ticketRef, Instant expiresAt) {
+        WhitelistIndex.validate(type, value);
         var existing = repo.findByTypeAndValue(type, value).orElse(null);
         if (existing != null) {
             // simplest approach: delete and recreate (keeps unique constraint logic simple)
@@ -62,6 +80,7 @@ public class WhitelistService {
         }
         var e = new WhitelistEntry(type, value, hardBypass, reason, createdBy, ticketRef, expiresAt);
         repo.save(e);
+        snapshot.changed(type, value, e);
 
         audit.write(createdBy, "UPSERT_WHITELIST", "WHITELIST", type + ":" + value,
                 "{\"hardBypass\":" + hardBypass + ",\"ticketRef\":\"" + safe(ticketRef) + "\"}");
@@ -70,7 +89,10 @@ public class WhitelistService {
 
     @Transactional
     public void delete(Long id, String actor) {
-        repo.deleteById(id);
+        repo.findById(id).ifPresent(e -> {
+            repo.delete(e);
+            snapshot.changed(e.getType(), e.getValue(), null);
+        });
         audit.write(actor, "DELETE_WHITELIST", "WHITELIST", String.valueOf(id), "{}");
     }
 
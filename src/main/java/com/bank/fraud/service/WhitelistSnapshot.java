@@ -0,0 +1,131 @@
+package com.bank.fraud.service;
+
+import com.bank.fraud.domain.WhitelistEntry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static com.bank.fraud.service.Repositories.*;
+
+/**
+ * Keeps the whole whitelist in memory as a {@link WhitelistIndex} so evaluation does no I/O.
+ * <ul>
+ *   <li>local change → patched right after commit</li>
+ *   <li>change on another instance → NOTIFY whitelist_changed "type:value", entry re-read and patched
+ *       ("*" after a bulk import: full reload)</li>
+ *   <li>every app.whitelist.pollMillis → change counter of the table (whitelist_version, bumped by a
+ *       trigger on every write, see schema.sql) compared, full reload if it moved; covers
+ *       notifications lost while the LISTEN connection was down and writes that send none</li>
+ *   <li>LISTEN (re)connected → full reload</li>
+ * </ul>
+ * Patches leave the known counter alone, so the poll after a change reloads once more and confirms.
+ * whitelist_snapshot_age_seconds is the time since the index was last confirmed against the table.
+ */
+@Service
+public class WhitelistSnapshot {
+
+    static final String CHANNEL = "whitelist_changed";
+    private static final String ALL = "*";
+
+    private static final Logger log = LoggerFactory.getLogger(WhitelistSnapshot.class);
+
+    private final WhitelistRepo repo;
+    private final PgNotificationBus bus;
+    private final MetricsService metrics;
+
+    private volatile WhitelistIndex index = WhitelistIndex.EMPTY;
+    private volatile long version;
+    private volatile long verifiedAtMillis;
+
+    public WhitelistSnapshot(WhitelistRepo repo, PgNotificationBus bus, MetricsService metrics) {
+        this.repo = repo;
+        this.bus = bus;
+        this.metrics = metrics;
+    }
+
+    @PostConstruct
+    void start() {
+        reload();
+        // a resync also runs once LISTEN is up, closing the gap since the load above
+        bus.subscribe(CHANNEL, this::onNotification, this::reload);
+        metrics.gauge("whitelist_snapshot_age_seconds", "Seconds since the in-memory whitelist was last confirmed current",
+                () -> (System.currentTimeMillis() - verifiedAtMillis) / 1000.0);
+        metrics.gauge("whitelist_snapshot_entries", "Entries in the in-memory whitelist", () -> index.size());
+    }
+
+    public WhitelistIndex current() {
+        return index;
+    }
+
+    public synchronized void reload() {
+        long v = repo.changeVersion(); // read first: a write in between only causes one more reload
+        WhitelistIndex next = WhitelistIndex.of(repo.findAll());
+        index = next;
+        version = v;
+        verifiedAtMillis = System.currentTimeMillis();
+        log.info("Whitelist snapshot loaded: {} active entries", next.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.whitelist.pollMillis}", initialDelayString = "${app.whitelist.pollMillis}")
+    void poll() {
+        try {
+            if (repo.changeVersion() == version) {
+                verifiedAtMillis = System.currentTimeMillis();
+            } else {
+                reload();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Whitelist change check failed", e);
+        }
+    }
+
+    /**
+     * Called inside the transaction that changed (type, value): tells the other instances on commit
+     * and patches this instance's index after commit. {@code entry} is the new row, null if deleted.
+     */
+    void changed(String type, String value, WhitelistEntry entry) {
+        bus.notify(CHANNEL, type + ":" + value);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                patch(type, value, entry);
+            }
+        });
+    }
+
+    /**
+     * Like {@link #changed} for set-based changes (bulk import): everyone reloads after commit.
+     */
+    void changedAll() {
+        bus.notify(CHANNEL, ALL);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reload();
+            }
+        });
+    }
+
+    private void onNotification(String payload) {
+        if (ALL.equals(payload)) {
+            reload();
+            return;
+        }
+        int sep = payload.indexOf(':');
+        if (sep < 0) return;
+        String type = payload.substring(0, sep);
+        String value = payload.substring(sep + 1);
+        synchronized (this) {
+            // re-read under the lock so a concurrent full reload cannot overwrite a newer row
+            patch(type, value, repo.findByTypeAndValue(type, value).orElse(null));
+        }
+    }
+
+    private synchronized void patch(String type, String value, WhitelistEntry entry) {
+        index = entry == null ? index.without(type, value) : index.with(WhitelistIndex.Entry.of(entry));
+    }
+}
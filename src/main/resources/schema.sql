@@ -0,0 +1,59 @@
+-- Schema work Hibernate's update (ddl-auto: update) cannot do. Runs on every start right after the
+-- update (spring.jpa.defer-datasource-initialization) and before any bean using JdbcTemplate is
+-- created; every statement is a no-op once applied. The file is sent as one statement
+-- (spring.sql.init.separator), so PL/pgSQL blocks keep their semicolons.
+
+-- fraud_alerts and case_events used to get their ids from identity columns, now from pooled
+-- sequences. On a database that already has rows the new sequence starts below max(id): move it
+-- past max(id), only ever forward (safe on several instances at once).
+SELECT setval(s.sequencename::regclass, t.max_id + s.increment_by)
+FROM (SELECT coalesce(max(id), 0) AS max_id FROM fraud_alerts) t, pg_sequences s
+WHERE s.schemaname = current_schema() AND s.sequencename = 'fraud_alerts_seq'
+  AND coalesce(s.last_value, 0) < t.max_id;  -- pooled optimizer: the value is the top of the last block
+
+SELECT setval(s.sequencename::regclass, t.max_id + s.increment_by)
+FROM (SELECT coalesce(max(id), 0) AS max_id FROM case_events) t, pg_sequences s
+WHERE s.schemaname = current_schema() AND s.sequencename = 'case_events_seq'
+  AND coalesce(s.last_value, 0) < t.max_id;
+
+-- One active case per customer (OpenCaseRegistry). The predicate must stay the one of
+-- OpenCaseRegistry.ACTIVE, ON CONFLICT only infers an index with the same predicate. While some
+-- customer has several active cases the index cannot be built; OpenCaseRegistry then logs an error
+-- and opens cases by read-then-insert.
+DO $$
+BEGIN
+    CREATE UNIQUE INDEX IF NOT EXISTS ux_case_customer_active ON fraud_cases (customer_no)
+        WHERE upper(status) IN ('OPEN', 'INVESTIGATING');
+EXCEPTION WHEN unique_violation THEN
+    RAISE WARNING 'ux_case_customer_active not created: %', SQLERRM;
+END $$;
+
+-- report_json was mandatory before sar_report_content; the update does not relax constraints.
+-- Checked first: the ALTER takes an ACCESS EXCLUSIVE lock on sar_reports.
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM information_schema.columns
+               WHERE table_schema = current_schema() AND table_name = 'sar_reports'
+                 AND column_name = 'report_json' AND is_nullable = 'NO') THEN
+        ALTER TABLE sar_reports ALTER COLUMN report_json DROP NOT NULL;
+    END IF;
+END $$;
+
+-- Change counter of whitelist_entries for WhitelistSnapshot's poll. Bumped by a statement trigger,
+-- so in-place UPDATEs, manual SQL and COPY move it too (row count and max(id) did not). Writers
+-- of the whitelist serialize on the counter row until commit; they are admin actions.
+CREATE TABLE IF NOT EXISTS whitelist_version (
+    id      smallint PRIMARY KEY CHECK (id = 1),
+    version bigint NOT NULL
+);
+INSERT INTO whitelist_version (id, version) VALUES (1, 0) ON CONFLICT (id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION whitelist_version_bump() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+    UPDATE whitelist_version SET version = version + 1 WHERE id = 1;
+    RETURN NULL;
+END $$;
+
+CREATE OR REPLACE TRIGGER whitelist_version_bump
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON whitelist_entries
+    FOR EACH STATEMENT EXECUTE FUNCTION whitelist_version_bump();
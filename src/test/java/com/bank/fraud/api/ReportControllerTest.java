@@ -0,0 +1,24 @@
+package com.bank.fraud.api;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportControllerTest {
+
+    @Test
+    void gzipIsAcceptedWhenListedWithPositiveWeight() {
+        for (String header : new String[]{"gzip", "GZIP", "gzip, deflate, br", "br;q=1.0, gzip;q=0.5", "x-gzip",
+                "gzip ; q=0.001", "identity;q=1, *;q=0.1", "*", "gzip;q=0, gzip;q=1"}) {
+            assertTrue(ReportController.acceptsGzip(header), header);
+        }
+    }
+
+    @Test
+    void gzipIsRefusedWhenMissingOrWeightedZero() {
+        for (String header : new String[]{"", "identity", "deflate, br", "gzip;q=0", "gzip;q=0.000",
+                "gzip;q=0, *;q=1", "*;q=0", "identity, *;q=0", "gzip;q=abc", "gzipped", "br, x-gzip;q=0"}) {
+            assertFalse(ReportController.acceptsGzip(header), header);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.bank.fraud.kafka;
+
+import com.bank.fraud.domain.TransactionEvent;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionEventCodecTest {
+
+    private final TransactionEventCodec codec = new TransactionEventCodec();
+
+    private static final TransactionEvent TYPICAL = new TransactionEvent("ev-1", "C00042", "TR110006200000000000000001",
+            "TR00BET00000000000000000042", 12_345_67, "TRY", "MOBILE", "7995", "kira ödemesi");
+
+    @Test
+    void roundTripsTypicalEvent() {
+        assertEquals(TYPICAL, codec.decodeBinary(codec.encodeBinary(TYPICAL)));
+    }
+
+    @Test
+    void roundTripsNullFields() {
+        TransactionEvent ev = new TransactionEvent(null, null, null, null, 0, null, null, null, null);
+        assertEquals(ev, codec.decodeBinary(codec.encodeBinary(ev)));
+    }
+
+    @Test
+    void roundTripsEmptyStringsAndExtremeAmounts() {
+        for (long amount : new long[]{Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}) {
+            TransactionEvent ev = new TransactionEvent("", "", "", "", amount, "", "", "", "");
+            assertEquals(ev, codec.decodeBinary(codec.encodeBinary(ev)));
+        }
+    }
+
+    @Test
+    void roundTripsNonAsciiText() {
+        TransactionEvent ev = new TransactionEvent("ev-ğüşiöç", "MÜŞTERİ-1", "TR00", "TR01", 5, "TRY", "ATM", null,
+                "İstanbul'a ödeme — €100 💸 ışık");
+        assertEquals(ev, codec.decodeBinary(codec.encodeBinary(ev)));
+    }
+
+    @Test
+    void roundTripsValuesOutsideTheDictionaries() {
+        TransactionEvent ev = new TransactionEvent("e", "c", "f", "t", 1, "XAU", "KIOSK", "79A5", "d");
+        assertEquals(ev, codec.decodeBinary(codec.encodeBinary(ev)));
+    }
+
+    @Test
+    void mccCodes() {
+        for (String mcc : List.of("0000", "0042", "7995", "9999", "123", "12345", "79a5", "")) {
+            TransactionEvent ev = withMcc(mcc);
+            assertEquals(mcc, codec.decodeBinary(codec.encodeBinary(ev)).mcc(), mcc);
+        }
+    }
+
+    @Test
+    void str8LimitIsCountedInUtf8Bytes() {
+        String max = "İ".repeat(127); // 254 bytes, the longest str8
+        TransactionEvent ok = new TransactionEvent(max, "c", null, null, 1, "TRY", "ATM", null, null);
+        assertEquals(ok, codec.decodeBinary(codec.encodeBinary(ok)));
+
+        TransactionEvent tooLong = new TransactionEvent("İ".repeat(128), "c", null, null, 1, "TRY", "ATM", null, null);
+        assertThrows(IllegalArgumentException.class, () -> codec.encodeBinary(tooLong));
+    }
+
+    @Test
+    void str16LimitForDescription() {
+        String max = "a".repeat(0xFFFE);
+        TransactionEvent ok = new TransactionEvent("e", "c", null, null, 1, "TRY", "ATM", null, max);
+        assertEquals(ok, codec.decodeBinary(codec.encodeBinary(ok)));
+
+        TransactionEvent tooLong = new TransactionEvent("e", "c", null, null, 1, "TRY", "ATM", null, "a".repeat(0xFFFF));
+        assertThrows(IllegalArgumentException.class, () -> codec.encodeBinary(tooLong));
+    }
+
+    @Test
+    void rejectsEveryTruncation() {
+        byte[] full = codec.encodeBinary(TYPICAL);
+        for (int len = 0; len < full.length; len++) {
+            byte[] cut = Arrays.copyOf(full, len);
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.decodeBinary(cut),
+                    "truncated to " + len + " of " + full.length + " bytes");
+            assertEquals("Truncated transaction event (" + len + " bytes)", e.getMessage());
+        }
+    }
+
+    @Test
+    void rejectsUnknownVersionAndDictionaryCode() {
+        byte[] bytes = codec.encodeBinary(TYPICAL);
+        byte[] v2 = bytes.clone();
+        v2[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeBinary(v2));
+
+        // currency code follows version, four str8 fields and the amount
+        TransactionEvent ev = new TransactionEvent("", "", "", "", 0, "TRY", "ATM", null, null);
+        byte[] badCurrency = codec.encodeBinary(ev);
+        badCurrency[1 + 4 + 8] = (byte) 200;
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.decodeBinary(badCurrency));
+        assertEquals("Unknown dictionary code: 200", e.getMessage());
+    }
+
+    @Test
+    void headerSelectsTheFormat() throws Exception {
+        byte[] json = """
+                {"eventId":"ev-1","customerNo":"C00042","fromIban":"TR110006200000000000000001",
+                 "toIban":"TR00BET00000000000000000042","amountCents":1234567,"currency":"TRY",
+                 "channel":"MOBILE","mcc":"7995","description":"kira ödemesi"}""".getBytes(StandardCharsets.UTF_8);
+        byte[] bin = codec.encodeBinary(TYPICAL);
+
+        assertEquals(TYPICAL, codec.decode(json, null));
+        assertEquals(TYPICAL, codec.decode(json, new RecordHeaders()));
+        assertEquals(TYPICAL, codec.decode(json, headers("json")));
+        assertEquals(TYPICAL, codec.decode(bin, headers("bin1")));
+        // the last header wins
+        RecordHeaders both = headers("json");
+        both.add(TransactionEventCodec.HEADER_FORMAT, "bin1".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(TYPICAL, codec.decode(bin, both));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.decode(bin, headers("bin2")));
+        assertEquals("Unsupported tx-format: bin2", e.getMessage());
+        // binary bytes are never mistaken for JSON and vice versa
+        assertThrows(Exception.class, () -> codec.decode(bin, null));
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(json, headers("bin1")));
+    }
+
+    @Test
+    void serializerStampsTheHeaderItsBytesNeed() throws Exception {
+        try (TransactionEventSerializer serializer = new TransactionEventSerializer()) {
+            RecordHeaders headers = headers("json");
+            byte[] bytes = serializer.serialize("transactions.created", headers, TYPICAL);
+
+            assertEquals(1, headers.toArray().length);
+            assertArrayEquals("bin1".getBytes(StandardCharsets.US_ASCII),
+                    headers.lastHeader(TransactionEventCodec.HEADER_FORMAT).value());
+            assertEquals(TYPICAL, codec.decode(bytes, headers));
+            assertNull(serializer.serialize("transactions.created", new RecordHeaders(), null));
+        }
+    }
+
+    private static RecordHeaders headers(String format) {
+        RecordHeaders h = new RecordHeaders();
+        h.add(TransactionEventCodec.HEADER_FORMAT, format.getBytes(StandardCharsets.US_ASCII));
+        return h;
+    }
+
+    private static TransactionEvent withMcc(String mcc) {
+        return new TransactionEvent("e", "c", null, null, 1, "TRY", "POS", mcc, null);
+    }
+}
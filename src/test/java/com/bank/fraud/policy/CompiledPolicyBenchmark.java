@@ -0,0 +1,59 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static com.bank.fraud.policy.PolicyModels.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compiled policy vs the linear scan it replaced, per event, for growing rule counts (rules split
+ * evenly across IBAN prefix, MCC and keyword). Run with {@code gradle benchmark}; not part of
+ * {@code gradle test}. Each size first checks that both produce the same matches.
+ */
+@Tag("benchmark")
+class CompiledPolicyBenchmark {
+
+    private static final int EVENTS = 1000;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int ROUNDS = 200;
+
+    @Test
+    void compiledVsLinear() {
+        System.out.printf("%8s %14s %14s%n", "rules", "linear ns/ev", "compiled ns/ev");
+        for (int rules : new int[]{6, 101, 1001, 5001}) {
+            RandomPolicies gen = new RandomPolicies(42);
+            Policy p = gen.policy(rules);
+            List<TransactionEvent> events = gen.events(EVENTS);
+            CompiledPolicy compiled = CompiledPolicy.compile(p, "v1");
+            LinearPolicyEvaluator linear = new LinearPolicyEvaluator(p, "v1");
+            for (TransactionEvent ev : events) assertEquals(linear.evaluate(ev), compiled.evaluate(ev));
+
+            // fewer rounds for the slow side at large sizes, same events
+            int linearRounds = Math.max(5, Math.min(ROUNDS, ROUNDS * 100 / rules));
+            double linearNs = nanosPerEvent(events, linear::evaluate, linearRounds, linearRounds);
+            double compiledNs = nanosPerEvent(events, compiled::evaluate, WARMUP_ROUNDS, ROUNDS);
+            System.out.printf("%8d %14.0f %14.0f%n", rules, linearNs, compiledNs);
+        }
+    }
+
+    private static double nanosPerEvent(List<TransactionEvent> events,
+                                        Function<TransactionEvent, List<PolicyEngine.MatchedRule>> eval,
+                                        int warmup, int rounds) {
+        long sink = 0;
+        for (int r = 0; r < warmup; r++) {
+            for (TransactionEvent ev : events) sink += eval.apply(ev).size();
+        }
+        long start = System.nanoTime();
+        for (int r = 0; r < rounds; r++) {
+            for (TransactionEvent ev : events) sink += eval.apply(ev).size();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(sink >= 0); // keeps the results alive
+        return (double) elapsed / ((long) rounds * events.size());
+    }
+}
@@ -0,0 +1,96 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bank.fraud.policy.PolicyModels.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledPolicyTest {
+
+    @Test
+    void matchesTheLinearScanOnRandomPolicies() {
+        for (int rules : new int[]{1, 3, 10, 100, 1000}) {
+            RandomPolicies gen = new RandomPolicies(rules);
+            Policy p = gen.policy(rules);
+            CompiledPolicy compiled = CompiledPolicy.compile(p, "v1");
+            LinearPolicyEvaluator linear = new LinearPolicyEvaluator(p, "v1");
+            int hits = 0;
+            for (TransactionEvent ev : gen.events(2000)) {
+                List<PolicyEngine.MatchedRule> expected = linear.evaluate(ev);
+                assertEquals(expected, compiled.evaluate(ev), () -> rules + " rules, " + ev);
+                hits += expected.size();
+            }
+            assertTrue(hits > 0, "the generated events should hit some of " + rules + " rules");
+        }
+    }
+
+    @Test
+    void reportsEachRuleOnceInPolicyOrder() {
+        Policy p = policy(
+                rule("kw", "KEYWORD", "bahis"),
+                rule("short", "BETTING_IBAN_PREFIX", "TR00"),
+                rule("long", "BETTING_IBAN_PREFIX", "TR00BET"),
+                rule("mcc", "BETTING_MCC", "7995"));
+        TransactionEvent ev = event("TR00BET123", "7995", "bahis bahis BAHIS");
+
+        assertEquals(List.of("kw", "short", "long", "mcc"), ids(CompiledPolicy.compile(p, "v1").evaluate(ev)));
+    }
+
+    @Test
+    void foldsTurkishCaseInKeywords() {
+        CompiledPolicy c = CompiledPolicy.compile(policy(rule("kw", "KEYWORD", "bahis")), "v1");
+
+        for (String d : List.of("BAHİS", "BAHIS", "bahıs", "canlı Bahis oranları")) {
+            assertEquals(List.of("kw"), ids(c.evaluate(event(null, null, d))), d);
+        }
+        assertEquals(List.of(), c.evaluate(event(null, null, "bahçe")));
+    }
+
+    @Test
+    void mccMatchIgnoresCase() {
+        CompiledPolicy c = CompiledPolicy.compile(policy(rule("mcc", "BETTING_MCC", "79ab")), "v1");
+
+        assertEquals(List.of("mcc"), ids(c.evaluate(event(null, "79AB", null))));
+        assertEquals(List.of(), c.evaluate(event(null, "7995", null)));
+    }
+
+    @Test
+    void rejectsAnInvalidPolicy() {
+        Policy p = policy(rule("a", "KEYWORD", "x"), rule("a", "NOPE", "y"));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> CompiledPolicy.compile(p, "v1"));
+        assertTrue(e.getMessage().contains("id duplicated: a"), e.getMessage());
+        assertTrue(e.getMessage().contains("type unknown: NOPE"), e.getMessage());
+    }
+
+    static Policy policy(Rule... rules) {
+        Policy p = new Policy();
+        p.policyId = "test";
+        p.rules = List.of(rules);
+        return p;
+    }
+
+    static Rule rule(String id, String type, String value) {
+        Rule r = new Rule();
+        r.id = id;
+        r.type = type;
+        r.severity = "HIGH";
+        r.action = "ALERT_ONLY";
+        r.value = value;
+        return r;
+    }
+
+    static TransactionEvent event(String toIban, String mcc, String description) {
+        return new TransactionEvent("ev-1", "C1", "TR001", toIban, 100, "TRY", "MOBILE", mcc, description);
+    }
+
+    private static List<String> ids(List<PolicyEngine.MatchedRule> matches) {
+        List<String> ids = new ArrayList<>(matches.size());
+        for (PolicyEngine.MatchedRule m : matches) ids.add(m.id());
+        return ids;
+    }
+}
@@ -0,0 +1,40 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bank.fraud.policy.PolicyModels.*;
+
+/**
+ * The rule-by-rule scan PolicyEngine used before policies were compiled, kept as the reference
+ * {@link CompiledPolicy} is checked and measured against. Knows the three indexed rule types only.
+ */
+final class LinearPolicyEvaluator {
+
+    private final Policy policy;
+    private final String version;
+
+    LinearPolicyEvaluator(Policy policy, String version) {
+        this.policy = policy;
+        this.version = version;
+    }
+
+    List<PolicyEngine.MatchedRule> evaluate(TransactionEvent ev) {
+        List<PolicyEngine.MatchedRule> matches = new ArrayList<>();
+        if (policy.rules == null) return matches;
+
+        for (Rule r : policy.rules) {
+            if (r.type == null) continue;
+            boolean hit = switch (r.type) {
+                case "BETTING_IBAN_PREFIX" -> ev.toIban() != null && ev.toIban().startsWith(r.value);
+                case "BETTING_MCC" -> ev.mcc() != null && ev.mcc().equalsIgnoreCase(r.value);
+                case "KEYWORD" -> ev.description() != null && ev.description().toLowerCase().contains(r.value.toLowerCase());
+                default -> false;
+            };
+            if (hit) matches.add(new PolicyEngine.MatchedRule(r.id, r.type, r.severity, r.action, r.value, policy.policyId, version));
+        }
+        return matches;
+    }
+}
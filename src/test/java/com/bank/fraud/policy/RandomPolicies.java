@@ -0,0 +1,100 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static com.bank.fraud.policy.PolicyModels.*;
+
+/**
+ * Seeded synthetic policies and events (ASCII only, where the linear scan's toLowerCase and
+ * TextFold agree), drawn from small pools so that a good share of the events hit some rule.
+ */
+final class RandomPolicies {
+
+    private static final String[] WORDS = {
+            "bahis", "bet", "betting", "casino", "kupon", "iddaa", "odeme", "kira", "market", "fatura",
+            "transfer", "maas", "poker", "slot", "jackpot", "tahsilat", "aidat", "spor", "canli", "oran"
+    };
+    private static final String[] SEVERITIES = {"LOW", "MEDIUM", "HIGH"};
+    private static final String[] ACTIONS = {"ALERT_ONLY", "BLOCK_CREDIT"};
+
+    private final Random rnd;
+    private final List<String> ibans = new ArrayList<>();
+
+    RandomPolicies(long seed) {
+        this.rnd = new Random(seed);
+        for (int i = 0; i < 200; i++) ibans.add("TR" + digits(24));
+    }
+
+    /**
+     * {@code rules} rules, in turn BETTING_IBAN_PREFIX, BETTING_MCC and KEYWORD.
+     */
+    Policy policy(int rules) {
+        Policy p = new Policy();
+        p.policyId = "bench";
+        p.rules = new ArrayList<>(rules);
+        for (int i = 0; i < rules; i++) {
+            Rule r = new Rule();
+            r.id = "r" + i;
+            r.severity = SEVERITIES[rnd.nextInt(SEVERITIES.length)];
+            r.action = ACTIONS[rnd.nextInt(ACTIONS.length)];
+            switch (i % 3) {
+                case 0 -> {
+                    r.type = "BETTING_IBAN_PREFIX";
+                    String iban = ibans.get(rnd.nextInt(ibans.size()));
+                    r.value = iban.substring(0, 4 + rnd.nextInt(8));
+                }
+                case 1 -> {
+                    r.type = "BETTING_MCC";
+                    r.value = Integer.toString(5900 + rnd.nextInt(200));
+                }
+                default -> {
+                    r.type = "KEYWORD";
+                    String w = WORDS[rnd.nextInt(WORDS.length)];
+                    r.value = rnd.nextInt(4) == 0 ? w + " " + WORDS[rnd.nextInt(WORDS.length)] : w;
+                    if (rnd.nextBoolean()) r.value = r.value.toUpperCase();
+                }
+            }
+            p.rules.add(r);
+        }
+        return p;
+    }
+
+    List<TransactionEvent> events(int n) {
+        List<TransactionEvent> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            String toIban = rnd.nextInt(10) == 0 ? null : rnd.nextBoolean()
+                    ? ibans.get(rnd.nextInt(ibans.size()))
+                    : "TR" + digits(24);
+            String mcc = rnd.nextInt(5) == 0 ? null : Integer.toString(5900 + rnd.nextInt(400));
+            out.add(new TransactionEvent("ev-" + i, "C" + rnd.nextInt(1000), "TR" + digits(24), toIban,
+                    1 + rnd.nextInt(10_000_000), "TRY", "MOBILE", mcc, rnd.nextInt(10) == 0 ? null : description()));
+        }
+        return out;
+    }
+
+    private String description() {
+        StringBuilder b = new StringBuilder();
+        int words = 1 + rnd.nextInt(8);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) b.append(' ');
+            String w = WORDS[rnd.nextInt(WORDS.length)];
+            b.append(switch (rnd.nextInt(3)) {
+                case 0 -> w.toUpperCase();
+                case 1 -> Character.toUpperCase(w.charAt(0)) + w.substring(1);
+                default -> w;
+            });
+            if (rnd.nextInt(4) == 0) b.append(rnd.nextInt(100));
+        }
+        return b.toString();
+    }
+
+    private String digits(int n) {
+        StringBuilder b = new StringBuilder(n);
+        for (int i = 0; i < n; i++) b.append((char) ('0' + rnd.nextInt(10)));
+        return b.toString();
+    }
+}
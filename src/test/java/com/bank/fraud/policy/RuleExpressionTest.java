@@ -0,0 +1,127 @@
+package com.bank.fraud.policy;
+
+import com.bank.fraud.domain.TransactionEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleExpressionTest {
+
+    private static final TransactionEvent EV = new TransactionEvent("ev-1", "C42", "TR11AAA", "TR00BET99",
+            7_500_000, "USD", "MOBILE", "7995", "Canlı BAHİS kuponu");
+    private static final TransactionEvent NO_MCC = new TransactionEvent("ev-2", "C42", "TR11AAA", "TR55XYZ",
+            100, "TRY", "ATM", null, null);
+
+    @Test
+    void notBindsTighterThanAndTighterThanOr() {
+        // OR of (false) and (true AND true)
+        assertTrue(test("currency = 'TRY' AND channel = 'ATM' OR mcc = '7995' AND channel = 'MOBILE'", EV));
+        // (true OR false) AND false would be false; true OR (false AND false) is true
+        assertTrue(test("channel = 'MOBILE' OR currency = 'TRY' AND mcc = '0000'", EV));
+        // NOT applies to the comparison only: (NOT false) AND true
+        assertTrue(test("NOT currency = 'TRY' AND channel = 'MOBILE'", EV));
+        assertFalse(test("NOT (currency = 'USD' AND channel = 'MOBILE')", EV));
+        assertTrue(test("NOT NOT channel = 'MOBILE'", EV));
+    }
+
+    @Test
+    void parenthesesOverridePrecedence() {
+        assertTrue(test("channel = 'MOBILE' OR currency = 'TRY' AND mcc = '0000'", EV));
+        assertFalse(test("(channel = 'MOBILE' OR currency = 'TRY') AND mcc = '0000'", EV));
+        assertTrue(test("((amountCents > 1))", EV));
+    }
+
+    @Test
+    void symbolAliasesAndCaseInsensitiveKeywords() {
+        assertTrue(test("channel == 'MOBILE' && !(currency <> 'USD') || mcc = 'x'", EV));
+        assertTrue(test("mcc in ('7995') and description contains 'bahis'", EV));
+    }
+
+    @Test
+    void numericComparisons() {
+        assertTrue(test("amountCents > 5_000_000", EV));
+        assertTrue(test("amountCents >= 7500000", EV));
+        assertTrue(test("amountCents <= 7_500_000", EV));
+        assertFalse(test("amountCents < 7_500_000", EV));
+        assertTrue(test("amountCents = 7_500_000", EV));
+        assertTrue(test("amountCents != -1", EV));
+        assertTrue(test("amountCents IN (1, 7_500_000, -5)", EV));
+        assertFalse(test("amountCents NOT IN (7500000)", EV));
+    }
+
+    @Test
+    void stringComparisons() {
+        assertTrue(test("toIban STARTS_WITH 'TR00BET'", EV));
+        assertFalse(test("toIban STARTS_WITH 'tr00bet'", EV)); // exact
+        assertTrue(test("mcc IN ('7801', \"7995\")", EV));
+        assertTrue(test("channel NOT IN ('ATM', 'BRANCH')", EV));
+        assertFalse(test("channel = 'mobile'", EV));
+        assertTrue(test("description CONTAINS 'bahis'", EV));      // folded: BAHİS
+        assertTrue(test("description CONTAINS 'CANLI'", EV));      // folded: Canlı
+        assertFalse(test("description CONTAINS 'refund'", EV));
+    }
+
+    @Test
+    void missingFieldIsFalseUnlessTestedForNull() {
+        assertFalse(test("mcc = '7995'", NO_MCC));
+        assertFalse(test("mcc != '7995'", NO_MCC));
+        assertFalse(test("mcc IN ('7995')", NO_MCC));
+        assertFalse(test("mcc NOT IN ('7995')", NO_MCC));
+        assertFalse(test("description CONTAINS 'x'", NO_MCC));
+        assertTrue(test("mcc IS NULL", NO_MCC));
+        assertFalse(test("mcc IS NOT NULL", NO_MCC));
+        assertTrue(test("mcc IS NOT NULL", EV));
+    }
+
+    @Test
+    void stringLiteralsWithEscapedQuotes() {
+        TransactionEvent ev = new TransactionEvent("e", "C1", null, null, 1, "TRY", "MOBILE", null,
+                "Ali's \"bet\" C:\\tmp");
+
+        assertTrue(test("description CONTAINS 'ali\\'s'", ev));
+        assertTrue(test("description CONTAINS \"\\\"bet\\\"\"", ev));
+        assertTrue(test("description CONTAINS '\"bet\"'", ev));  // the other quote needs no escape
+        assertTrue(test("description CONTAINS 'c:\\\\tmp'", ev));
+        assertTrue(test("description = 'Ali\\'s \"bet\" C:\\\\tmp'", ev));
+    }
+
+    @Test
+    void rejectsBadStringLiterals() {
+        assertError("channel = 'MOBILE", "unterminated string at position 10");
+        assertError("channel = 'it\\'s", "unterminated string at position 10");
+        assertError("channel = 'a\\nb'", "invalid escape in string at position 12, only \\' \\\" and \\\\ are allowed");
+    }
+
+    @Test
+    void rejectsSyntaxAndTypeErrors() {
+        assertError("", "expression is empty");
+        assertError("channel", "=, !=, IN, NOT IN, STARTS_WITH, CONTAINS or IS expected at position 7");
+        assertError("amount > 5", "unknown field 'amount' at position 0");
+        assertError("amountCents > '5'", "number expected at position 14");
+        assertError("channel = 5", "quoted string expected at position 10");
+        assertError("amountCents IS NULL", "amountCents is never null at position 12");
+        assertError("amountCents > 99999999999999999999", "invalid number '99999999999999999999' at position 14");
+        assertError("(channel = 'A'", "')' expected at position 14");
+        assertError("channel = 'A' channel = 'B'", "unexpected 'channel' at position 14");
+        assertError("channel = 'A' AND", "field name expected at position 17");
+        assertError("mcc NOT LIKE ('1')", "IN expected at position 8");
+        assertError("mcc IN '1'", "'(' expected at position 7");
+        assertError("channel ~ 'A'", "unexpected '~' at position 8");
+        assertError("channel 'A' 'B'", "=, !=, IN, NOT IN, STARTS_WITH, CONTAINS or IS expected at position 8");
+        assertError("amountCents", "comparison operator expected at position 11");
+        assertError("amountCents < = 5", "number expected at position 14");
+        assertError("mcc IS NOT 'x'", "NULL expected at position 11");
+    }
+
+    private static boolean test(String expression, TransactionEvent ev) {
+        Predicate<TransactionEvent> p = RuleExpression.compile(expression);
+        return p.test(ev);
+    }
+
+    private static void assertError(String expression, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> RuleExpression.compile(expression));
+        assertEquals(message, e.getMessage(), expression);
+    }
+}
@@ -0,0 +1,95 @@
+package com.bank.fraud.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditRingBufferTest {
+
+    @Test
+    void rejectsCapacityThatIsNotAPowerOfTwo() {
+        for (int capacity : new int[]{0, 3, 100, -8}) {
+            assertThrows(IllegalArgumentException.class, () -> new AuditRingBuffer<String>(capacity));
+        }
+    }
+
+    @Test
+    void refusesOffersWhenFullAndDrainsInOrder() {
+        AuditRingBuffer<Integer> ring = new AuditRingBuffer<>(4);
+        for (int i = 0; i < 4; i++) assertTrue(ring.offer(i));
+        assertFalse(ring.offer(4));
+        assertEquals(4, ring.size());
+
+        List<Integer> out = new ArrayList<>();
+        assertEquals(3, ring.drain(out::add, 3));
+        assertEquals(List.of(0, 1, 2), out);
+        assertTrue(ring.offer(4));
+        assertEquals(2, ring.drain(out::add, 10));
+        assertEquals(List.of(0, 1, 2, 3, 4), out);
+        assertEquals(0, ring.size());
+        assertEquals(0, ring.drain(out::add, 10));
+    }
+
+    @Test
+    void wrapsAroundForManyLaps() {
+        AuditRingBuffer<Integer> ring = new AuditRingBuffer<>(8);
+        List<Integer> out = new ArrayList<>();
+        int next = 0;
+        for (int lap = 0; lap < 1000; lap++) {
+            for (int i = 0; i < 5; i++) assertTrue(ring.offer(next++));
+            ring.drain(out::add, 5);
+        }
+        assertEquals(5000, out.size());
+        for (int i = 0; i < out.size(); i++) assertEquals(i, (int) out.get(i));
+    }
+
+    @Test
+    void concurrentProducersDeliverEveryItemOnceInProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200_000;
+        AuditRingBuffer<long[]> ring = new AuditRingBuffer<>(64); // small, so producers keep hitting full
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (long i = 0; i < perProducer; i++) {
+                    long[] item = {producer, i};
+                    while (!ring.offer(item)) Thread.onSpinWait();
+                }
+            }));
+        }
+
+        long[] expected = new long[producers];
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        start.countDown();
+        long received = 0;
+        while (received < (long) producers * perProducer) {
+            int n = ring.drain(item -> {
+                assertEquals(expected[(int) item[0]], item[1], "producer " + item[0]);
+                expected[(int) item[0]]++;
+            }, 256);
+            received += n;
+            if (n == 0) {
+                assertTrue(System.nanoTime() < deadline, "stalled after " + received + " items");
+                LockSupport.parkNanos(1_000);
+            }
+        }
+        for (Thread t : threads) t.join();
+
+        for (long count : expected) assertEquals(perProducer, count);
+        assertEquals(0, ring.size());
+        assertEquals(0, ring.drain(item -> { }, 1));
+    }
+}
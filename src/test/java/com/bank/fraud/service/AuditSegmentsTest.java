@@ -0,0 +1,159 @@
+package com.bank.fraud.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditSegmentsTest {
+
+    // 64 hex + ' ' + record + '\n' is about 100 bytes: two lines per segment
+    private static final int SMALL_SEGMENT = 256;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void appendsReadsAndVerifiesTheChain() throws IOException {
+        try (AuditSegments s = new AuditSegments(dir, 1 << 16)) {
+            for (int i = 0; i < 5; i++) s.append(record(s.nextSeq(), "A" + i));
+        }
+
+        List<AuditSegments.Line> lines = AuditSegments.read(dir, 1, 100, r -> true);
+        assertEquals(5, lines.size());
+        assertEquals("{\"seq\":1,\"action\":\"A0\"}", lines.get(0).record());
+        assertEquals(2, AuditSegments.read(dir, 2, 100, r -> r.contains("\"A1\"") || r.contains("\"A3\"")).size());
+
+        AuditSegments.Verification v = AuditSegments.verify(dir);
+        assertEquals("OK", v.status(), v.error());
+        assertEquals(5, v.records());
+        assertEquals(5, v.lastSeq());
+        assertEquals(lines.get(4).hash(), v.lastHash());
+    }
+
+    @Test
+    void emptyDirectoryStartsTheChainAtOne() throws IOException {
+        try (AuditSegments s = new AuditSegments(dir, SMALL_SEGMENT)) {
+            assertEquals(1, s.nextSeq());
+            assertEquals("0".repeat(64), s.lastHash());
+        }
+        assertEquals(List.of(), AuditSegments.segments(dir));
+        assertEquals("OK", AuditSegments.verify(dir).status());
+    }
+
+    @Test
+    void chainContinuesAcrossRotationAndRestart() throws IOException {
+        String hash;
+        try (AuditSegments s = new AuditSegments(dir, SMALL_SEGMENT)) {
+            for (int i = 0; i < 5; i++) s.append(record(s.nextSeq(), "A" + i));
+            hash = s.lastHash();
+        }
+        List<Path> segments = AuditSegments.segments(dir);
+        assertEquals(List.of(1L, 3L, 5L), segments.stream().map(AuditSegments::firstSeq).toList());
+
+        // reopened with room for one more line in the last segment, then rotates again
+        try (AuditSegments s = new AuditSegments(dir, SMALL_SEGMENT)) {
+            assertEquals(6, s.nextSeq());
+            assertEquals(hash, s.lastHash());
+            for (int i = 5; i < 8; i++) s.append(record(s.nextSeq(), "A" + i));
+        }
+        assertEquals(List.of(1L, 3L, 5L, 7L), AuditSegments.segments(dir).stream().map(AuditSegments::firstSeq).toList());
+
+        AuditSegments.Verification v = AuditSegments.verify(dir);
+        assertEquals("OK", v.status(), v.error());
+        assertEquals(4, v.segments());
+        assertEquals(8, v.records());
+
+        // reading from the middle starts in the segment holding fromSeq
+        List<AuditSegments.Line> lines = AuditSegments.read(dir, 4, 3, r -> true);
+        assertEquals(List.of("A3", "A4", "A5"), lines.stream().map(l -> action(l.record())).toList());
+    }
+
+    @Test
+    void tornLineIsZeroedAndOverwritten() throws IOException {
+        try (AuditSegments s = new AuditSegments(dir, 1 << 12)) {
+            for (int i = 0; i < 3; i++) s.append(record(s.nextSeq(), "A" + i));
+        }
+        Path seg = AuditSegments.segments(dir).get(0);
+        long end = dataEnd(seg);
+        try (RandomAccessFile f = new RandomAccessFile(seg.toFile(), "rw")) {
+            f.seek(end);
+            f.write("0123abcd {\"seq\":4,\"act".getBytes(StandardCharsets.US_ASCII)); // crash mid-line
+        }
+        assertEquals(3, AuditSegments.read(dir, 1, 100, r -> true).size()); // readers skip it
+
+        try (AuditSegments s = new AuditSegments(dir, 1 << 12)) {
+            assertEquals(4, s.nextSeq());
+            s.append(record(4, "short"));
+        }
+        assertEquals(dataEnd(seg), end + 64 + 1 + record(4, "short").length + 1); // no leftover of the torn bytes
+        AuditSegments.Verification v = AuditSegments.verify(dir);
+        assertEquals("OK", v.status(), v.error());
+        assertEquals(4, v.records());
+    }
+
+    @Test
+    void emptyLastSegmentLeftByACrashIsReplaced() throws IOException {
+        try (AuditSegments s = new AuditSegments(dir, SMALL_SEGMENT)) {
+            for (int i = 0; i < 2; i++) s.append(record(s.nextSeq(), "A" + i));
+        }
+        Path empty = dir.resolve("audit-00000000000000000003.log");
+        Files.write(empty, new byte[SMALL_SEGMENT]); // created, crashed before the first line
+
+        try (AuditSegments s = new AuditSegments(dir, SMALL_SEGMENT)) {
+            assertFalse(Files.exists(empty));
+            assertEquals(3, s.nextSeq());
+            s.append(record(3, "A2"));
+        }
+        assertEquals("OK", AuditSegments.verify(dir).status());
+        assertEquals(3, AuditSegments.verify(dir).records());
+    }
+
+    @Test
+    void verifyReportsEditsAndSeqGaps() throws IOException {
+        try (AuditSegments s = new AuditSegments(dir, 1 << 12)) {
+            s.append(record(1, "A0"));
+            s.append(record(2, "A1"));
+            s.append(record(4, "A3")); // hashes fine, seq 3 missing
+        }
+        AuditSegments.Verification gap = AuditSegments.verify(dir);
+        assertEquals("BROKEN", gap.status());
+        assertTrue(gap.error().endsWith("line 3: seq 4, expected 3"), gap.error());
+        assertEquals(2, gap.records());
+
+        Path seg = AuditSegments.segments(dir).get(0);
+        byte[] bytes = Files.readAllBytes(seg);
+        String text = new String(bytes, StandardCharsets.US_ASCII);
+        int at = text.indexOf("\"A1\"") + 2;
+        bytes[at] = '9'; // A1 -> A9
+        Files.write(seg, bytes);
+        AuditSegments.Verification edited = AuditSegments.verify(dir);
+        assertEquals("BROKEN", edited.status());
+        assertTrue(edited.error().endsWith("line 2: hash mismatch"), edited.error());
+        assertEquals(1, edited.records());
+    }
+
+    private static byte[] record(long seq, String action) {
+        return ("{\"seq\":" + seq + ",\"action\":\"" + action + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String action(String record) {
+        int from = record.indexOf("\"action\":\"") + 10;
+        return record.substring(from, record.indexOf('"', from));
+    }
+
+    // offset of the zero fill
+    private static long dataEnd(Path seg) throws IOException {
+        byte[] bytes = Files.readAllBytes(seg);
+        int end = 0;
+        while (end < bytes.length && bytes[end] != 0) end++;
+        return end;
+    }
+}
@@ -0,0 +1,54 @@
+package com.bank.fraud.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetTest {
+
+    @Test
+    void cursorRoundTrips() {
+        Keyset.Cursor c = new Keyset.Cursor(Instant.parse("2026-03-01T10:15:30.123456789Z"), 42);
+        assertEquals(c, Keyset.Cursor.parse(c.token(), Keyset.NEWEST));
+        assertEquals(Keyset.NEWEST, Keyset.Cursor.parse(null, Keyset.NEWEST));
+        assertEquals(Keyset.OLDEST, Keyset.Cursor.parse(" ", Keyset.OLDEST));
+    }
+
+    @Test
+    void validateRejectsBadCursorsAndLimits() {
+        Keyset.validate(null, 1);
+        Keyset.validate(new Keyset.Cursor(Instant.EPOCH, 1).token(), Keyset.MAX_LIMIT);
+
+        for (String bad : List.of("not base64!", "MTIz", "YS5iOmM")) { // "123", "a.b:c"
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Keyset.validate(bad, 10));
+            assertEquals("invalid cursor: " + bad, e.getMessage());
+        }
+        for (int bad : new int[]{0, -1, Keyset.MAX_LIMIT + 1}) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> Keyset.validate(null, bad));
+            assertEquals("limit must be 1.." + Keyset.MAX_LIMIT, e.getMessage());
+        }
+    }
+
+    @Test
+    void pageCutsAtLimitAndPointsPastItsLastRow() {
+        List<Keyset.Cursor> rows = List.of(new Keyset.Cursor(Instant.ofEpochSecond(3), 3),
+                new Keyset.Cursor(Instant.ofEpochSecond(2), 2), new Keyset.Cursor(Instant.ofEpochSecond(1), 1));
+
+        Keyset.Page<Keyset.Cursor> page = Keyset.page(rows, 2, r -> r);
+        assertEquals(rows.subList(0, 2), page.items());
+        assertEquals(rows.get(1), Keyset.Cursor.parse(page.nextCursor(), Keyset.NEWEST));
+
+        assertNull(Keyset.page(rows, 3, r -> r).nextCursor());
+    }
+
+    @Test
+    void alertsNeedACaseOrACustomer() {
+        assertEquals("C1", CaseService.requireAlertFilter(null, "C1"));
+        assertNull(CaseService.requireAlertFilter(7L, null));
+        assertThrows(IllegalArgumentException.class, () -> CaseService.requireAlertFilter(null, null));
+        assertThrows(IllegalArgumentException.class, () -> CaseService.requireAlertFilter(null, " "));
+    }
+}
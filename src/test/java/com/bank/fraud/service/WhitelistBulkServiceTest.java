@@ -0,0 +1,74 @@
+package com.bank.fraud.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Export → import of the same bytes. The export lines are built the way COPY (FORMAT csv, HEADER)
+ * writes the EXPORT_CSV query, so the rows check the cell formats the import has to accept.
+ */
+class WhitelistBulkServiceTest {
+
+    // to_char(... AT TIME ZONE 'UTC', WhitelistBulkService.EXPORT_INSTANT)
+    private static final DateTimeFormatter TO_CHAR =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS'Z'").withZone(ZoneOffset.UTC);
+
+    private static final String HEADER = "type,value,hardBypass,reason,createdBy,ticketRef,expiresAt,createdAt";
+
+    @Test
+    void exportedRowsReimportUnchanged() {
+        Instant expires = Instant.parse("2026-02-01T00:00:00Z");
+        Instant created = Instant.parse("2025-11-03T08:15:42.123456Z");
+        List<String> export = List.of(
+                HEADER,
+                exportLine("CUSTOMER", "C00042", true, "VIP, approved by \"risk\"", "alice", "TCK-1", expires, created),
+                exportLine("IBAN_PREFIX", "TR3300061", false, "payroll bank", "bob", null, null, created),
+                exportLine("MCC_RANGE", "5411-5499", false, "grocery — düşük risk", "system", "TCK-2", expires, created));
+
+        Map<String, Integer> header = WhitelistBulkService.header(export.get(0));
+        List<String> copyRows = new ArrayList<>();
+        for (int i = 1; i < export.size(); i++) {
+            Map<String, String> fields = WhitelistBulkService.csvFields(export.get(i), header);
+            assertNull(WhitelistBulkService.validate(fields), export.get(i));
+            StringBuilder row = new StringBuilder();
+            WhitelistBulkService.appendCopyRow(row, i + 1, fields, "importer");
+            copyRows.add(row.toString());
+        }
+
+        assertEquals(List.of(
+                "2\tCUSTOMER\tC00042\tt\tVIP, approved by \"risk\"\talice\tTCK-1\t2026-02-01T00:00:00.000000Z\n",
+                "3\tIBAN_PREFIX\tTR3300061\tf\tpayroll bank\tbob\t\\N\t\\N\n",
+                "4\tMCC_RANGE\t5411-5499\tf\tgrocery — düşük risk\tsystem\tTCK-2\t2026-02-01T00:00:00.000000Z\n"),
+                copyRows);
+    }
+
+    @Test
+    void nativeCopyCellsAreRejected() {
+        // what COPY writes for an untouched boolean / timestamptz column
+        Map<String, Integer> header = WhitelistBulkService.header(HEADER);
+        Map<String, String> fields = WhitelistBulkService.csvFields(
+                "CUSTOMER,C1,t,r,alice,,2026-02-01 00:00:00+00,2025-11-03 08:15:42.123456+00", header);
+        assertEquals("hardBypass must be true or false", WhitelistBulkService.validate(fields));
+    }
+
+    private static String exportLine(String type, String value, boolean hardBypass, String reason, String createdBy,
+                                     String ticketRef, Instant expiresAt, Instant createdAt) {
+        return String.join(",", csv(type), csv(value), Boolean.toString(hardBypass), csv(reason), csv(createdBy),
+                csv(ticketRef), expiresAt == null ? "" : TO_CHAR.format(expiresAt), TO_CHAR.format(createdAt));
+    }
+
+    // COPY csv: NULL is an empty unquoted cell, cells with a comma, quote or line break are quoted
+    private static String csv(String v) {
+        if (v == null) return "";
+        if (v.matches("(?s).*[,\"\\r\\n].*")) return '"' + v.replace("\"", "\"\"") + '"';
+        return v;
+    }
+}